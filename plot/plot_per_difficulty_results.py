@@ -1,3 +1,6 @@
+import glob
+import re
+
 import pandas as pd
 import numpy as np
 import matplotlib as mpl
@@ -5,12 +8,17 @@ import matplotlib.pyplot as plt
 
 mpl.rcParams['agg.path.chunksize'] = 10000
 
-data_files = [
-    ("../results/difficulty/r_4_genius_ss_1000_0.01_0.90.txt", "Efectividad Sudokus 4x4, Dificultad Alta", "#5B5678"),
-    ("../results/difficulty/r_5_genius_ss_1000_0.01_0.90.txt", "Efectividad Sudokus 5x5, Dificultad Alta", "#99CC33")
-]
+colors = ["#5B5678", "#99CC33", "#E07A5F", "#3D405B", "#81B29A", "#F2CC8F", "#6D597A", "#B56576"]
+
+# Every square size with genius results
+data_files = []
+for file in glob.glob("../results/difficulty/r_*_genius_ss_1000_0.01_0.90.txt"):
+    square_size = int(re.search(r"r_(\d+)_genius", file).group(1))
+    data_files.append((square_size, file))
 
-for file, title, color in data_files:
+for i, (square_size, file) in enumerate(sorted(data_files)):
+    title = "Efectividad Sudokus {0}x{0}, Dificultad Alta".format(square_size)
+    color = colors[i % len(colors)]
     data = pd.read_csv(file, delim_whitespace=True)
 
     df = data.groupby("id").min()["cost"].value_counts().reset_index()
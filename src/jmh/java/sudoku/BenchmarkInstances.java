@@ -0,0 +1,71 @@
+package sudoku;
+
+import com.sun.istack.internal.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Instances shared by the benchmarks, taken from the zipped datasets so every run measures the same boards.
+ */
+public final class BenchmarkInstances {
+
+    private static final Path DATASETS_PATH = Paths.get(System.getProperty("user.dir"), "datasets");
+
+    /**
+     * Seed of every random source used by the benchmarks.
+     */
+    public static final long SEED = 42;
+
+    private BenchmarkInstances() {
+    }
+
+    /**
+     * @return the instance of the given square size used by every benchmark: the first Kaggle instance for 3x3 boards,
+     * the first medium one for 4x4 and 5x5 boards, which are the only sizes of the datasets, and a random instance with
+     * a fifth of its positions fixed for bigger boards
+     */
+    @NotNull
+    public static Sudoku of(int squareSize) throws IOException {
+        if (squareSize > 5) {
+            int fixedQuantity = (int) Math.pow(squareSize, 4) / 5;
+            return Sudoku.of(new Sudoku.Config(squareSize, fixedQuantity), new SplittableRandom(SEED));
+        }
+
+        return Sudoku.of(new Sudoku.ValueSeparatorFileConfig(extract(squareSize), ' '));
+    }
+
+    /**
+     * Copies the instance of the given square size out of its dataset into a temporary file, deleted on exit.
+     *
+     * @return path of the temporary file, in the whitespace separated format of the datasets
+     */
+    @NotNull
+    public static Path extract(int squareSize) throws IOException {
+        Path zipPath = squareSize == 3
+                ? DATASETS_PATH.resolve("kaggle").resolve("sudokus_kaggle.zip")
+                : DATASETS_PATH.resolve("difficulty").resolve("sudokus_per_difficulty.zip");
+        String entryName = squareSize == 3 ? "s_3_1.txt" : "s_" + squareSize + "_medium_1.txt";
+
+        try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null) throw new IllegalArgumentException("No benchmark instance for squareSize " + squareSize);
+
+            Path instancePath = Files.createTempFile("sudoku_" + squareSize + "_", ".txt");
+            instancePath.toFile().deleteOnExit();
+            try (InputStream input = zip.getInputStream(entry)) {
+                Files.copy(input, instancePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return instancePath;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package sudoku;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Reading a 3x3 instance from disk with each {@link Sudoku.FileConfig}, the only size both formats can hold,
+ * reading a whole dataset out of its zip archive and reading the same dataset as one puzzle per line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileConfigBenchmark {
+
+    private Path valueSeparatorPath;
+    private Path singleDigitValuePath;
+    private Path bulkPath;
+    private final Path kagglePath = Paths.get(System.getProperty("user.dir"), "datasets", "kaggle", "sudokus_kaggle.zip");
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        valueSeparatorPath = BenchmarkInstances.extract(3);
+
+        List<String> singleDigitLines = Files.readAllLines(valueSeparatorPath).stream()
+                .map(line -> line.replace(" ", ""))
+                .collect(Collectors.toList());
+        singleDigitValuePath = Files.createTempFile("sudoku_single_digit_", ".txt");
+        singleDigitValuePath.toFile().deleteOnExit();
+        Files.write(singleDigitValuePath, singleDigitLines);
+
+        List<String> bulkLines = ZipDataset.read(kagglePath, name -> true).stream()
+                .map(instance -> instance.readSudokuLines().stream()
+                        .flatMapToInt(Arrays::stream)
+                        .mapToObj(String::valueOf)
+                        .collect(Collectors.joining()))
+                .collect(Collectors.toList());
+        bulkPath = Files.createTempFile("sudoku_bulk_", ".txt");
+        bulkPath.toFile().deleteOnExit();
+        Files.write(bulkPath, bulkLines);
+    }
+
+    @Benchmark
+    public Sudoku valueSeparator() {
+        return Sudoku.of(new Sudoku.ValueSeparatorFileConfig(valueSeparatorPath, ' '));
+    }
+
+    @Benchmark
+    public Sudoku singleDigitValue() {
+        return Sudoku.of(new Sudoku.SingleDigitValueFileConfig(singleDigitValuePath));
+    }
+
+    /**
+     * Reads and parses the 250 instances of the Kaggle dataset.
+     */
+    @Benchmark
+    public int kaggleZipDataset() {
+        int fixedPositions = 0;
+        for (Sudoku.FileConfig instance : ZipDataset.read(kagglePath, name -> true)) {
+            fixedPositions += Sudoku.of(instance).fixedPositionsCount();
+        }
+
+        return fixedPositions;
+    }
+
+    /**
+     * Parses the 250 instances of the Kaggle dataset from a file holding one per line, without building a
+     * {@link Sudoku} for any of them.
+     */
+    @Benchmark
+    public int kaggleBulkGivens() {
+        int[] givens = new int[1];
+        try (BulkPuzzleSource source = BulkPuzzleSource.digits(bulkPath, 3)) {
+            source.forEachGivens((index, board) -> {
+                for (byte value : board) if (value != 0) givens[0]++;
+            });
+        }
+
+        return givens[0];
+    }
+
+}
@@ -0,0 +1,65 @@
+package sudoku;
+
+import org.openjdk.jmh.annotations.*;
+import sudoku.Sudoku.NeighborStrategy;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of a single annealing iteration. Every operation of {@link #propose} is one move, so its throughput is the
+ * amount of moves per second a strategy can evaluate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighborBenchmark {
+
+    @Param({"3", "4", "5", "10"})
+    public int squareSize;
+
+    @Param({"RANDOM_SWAP_BOARD", "RANDOM_SWAP_SQUARE", "RANDOM_ADD_ONE", "CONFLICT_SWAP_SQUARE"})
+    public NeighborStrategy strategy;
+
+    private Sudoku sudoku;
+    private final SplittableRandom random = new SplittableRandom(BenchmarkInstances.SEED);
+    private final Sudoku.Move move = new Sudoku.Move();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sudoku = BenchmarkInstances.of(squareSize);
+        sudoku.populateNonFixed(random);
+    }
+
+    /**
+     * Proposes a move and its energy delta without applying it, which is what rejected iterations cost.
+     */
+    @Benchmark
+    public int propose() {
+        sudoku.propose(strategy, move, random);
+        return move.delta();
+    }
+
+    /**
+     * Proposes a move and applies it, which is what accepted iterations cost.
+     */
+    @Benchmark
+    public int proposeAndApply() {
+        sudoku.propose(strategy, move, random);
+        sudoku.apply(move);
+        return sudoku.repetitions();
+    }
+
+    /**
+     * Allocating counterpart of {@link #proposeAndApply()}, copying the board before every move.
+     */
+    @Benchmark
+    public Sudoku neighbor() {
+        return sudoku.neighbor(strategy, random);
+    }
+
+}
@@ -0,0 +1,65 @@
+package sudoku;
+
+import org.openjdk.jmh.annotations.*;
+import sudoku.Sudoku.NeighborStrategy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole annealing run with the parameters of the Kaggle trials, on the same instance and with the same seed every
+ * time. Besides the runs per second, the {@link Moves} counter reports how many iterations per second the annealer
+ * performs. Every iteration goes through the report as in a trial, but rows are discarded so no I/O is measured.
+ *
+ * JMH does not accept benchmarks in the default package, where the annealer lives, so it is looked up by name.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimulatedAnnealingBenchmark {
+
+    @Param({"3", "4", "5"})
+    public int squareSize;
+
+    @Param({"RANDOM_SWAP_SQUARE"})
+    public NeighborStrategy strategy;
+
+    private Sudoku instance;
+    private MethodHandle runDiscardingReport;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Moves {
+        public long moves;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            moves = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        instance = BenchmarkInstances.of(squareSize);
+
+        Method method = Class.forName("SimulatedAnnealing").getDeclaredMethod("runDiscardingReport",
+                Sudoku.class, NeighborStrategy.class, double.class, double.class, double.class, long.class);
+        method.setAccessible(true);
+        runDiscardingReport = MethodHandles.lookup().unreflect(method);
+    }
+
+    @Benchmark
+    public long runSimulatedAnnealing(Moves moves) throws Throwable {
+        long iterations = (long) runDiscardingReport.invokeExact(instance, strategy, 1000.0, 0.01, 0.9,
+                BenchmarkInstances.SEED);
+        moves.moves += iterations;
+
+        return iterations;
+    }
+
+}
@@ -0,0 +1,44 @@
+package sudoku;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board wide operations, performed once per annealing run or attempt, except for {@link Sudoku#repetitions()} which
+ * every iteration reads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SudokuBenchmark {
+
+    @Param({"3", "4", "5", "10"})
+    public int squareSize;
+
+    private Sudoku sudoku;
+    private final SplittableRandom random = new SplittableRandom(BenchmarkInstances.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sudoku = BenchmarkInstances.of(squareSize);
+        sudoku.populateNonFixed(random);
+    }
+
+    @Benchmark
+    public int repetitions() {
+        return sudoku.repetitions();
+    }
+
+    @Benchmark
+    public int populateNonFixed() {
+        sudoku.populateNonFixed(random);
+        return sudoku.repetitions();
+    }
+
+}
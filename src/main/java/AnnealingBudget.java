@@ -0,0 +1,52 @@
+import com.sun.istack.internal.NotNull;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bounds on a single annealing run on top of its cooling schedule, for callers that need the best board found in time
+ * rather than the end of the schedule.
+ *
+ * The iteration budget is exact. Deadlines and cancellation are polled every {@link #POLL_ITERATIONS} iterations, well
+ * under a millisecond of annealing, so checking them costs nothing noticeable.
+ */
+final class AnnealingBudget {
+
+    static final AnnealingBudget UNLIMITED = new AnnealingBudget(Long.MAX_VALUE, Long.MAX_VALUE, () -> false);
+
+    /**
+     * A power of two, so polls are a mask away.
+     */
+    static final long POLL_ITERATIONS = 1024;
+
+    final long maximumIterations;
+
+    /**
+     * Nanoseconds left at creation, or {@link Long#MAX_VALUE} for no deadline.
+     */
+    private final long timeoutNanos;
+    private final long start;
+    private final BooleanSupplier cancelled;
+
+    /**
+     * @param maximumIterations the run performs at most, or {@link Long#MAX_VALUE} for no budget
+     * @param timeoutNanos      from now until the run has to stop, or {@link Long#MAX_VALUE} for no deadline
+     * @param cancelled         whether the run was cancelled and should stop
+     */
+    AnnealingBudget(long maximumIterations, long timeoutNanos, @NotNull BooleanSupplier cancelled) {
+        if (maximumIterations < 0) throw new IllegalArgumentException("maximumIterations cannot be < 0");
+        if (timeoutNanos < 0) throw new IllegalArgumentException("timeoutNanos cannot be < 0");
+
+        this.maximumIterations = maximumIterations;
+        this.timeoutNanos = timeoutNanos;
+        this.start = System.nanoTime();
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return whether the deadline passed or the run was cancelled
+     */
+    boolean isInterrupted() {
+        return cancelled.getAsBoolean() || timeoutNanos != Long.MAX_VALUE && System.nanoTime() - start >= timeoutNanos;
+    }
+
+}
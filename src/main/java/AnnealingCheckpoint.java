@@ -0,0 +1,105 @@
+import com.sun.istack.internal.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * State of an annealing run at the start of a temperature, from which it can be resumed as if it never stopped.
+ *
+ * Runs draw a new random source from the previous one at the start of every temperature, so the seed of the current
+ * one is all the random state there is to keep. The equilibrium is reset at that point and cooling schedules only look
+ * at the temperature that just ended, so neither has to be saved.
+ */
+final class AnnealingCheckpoint {
+
+    /**
+     * Seed of the random source of the current temperature.
+     */
+    final long temperatureSeed;
+    final double temperature;
+    final int attempt;
+    final int attemptBestEnergy;
+    final long iterationsWithoutImprovement;
+
+    /**
+     * Values of every cell of the current and best boards.
+     */
+    final byte[] current;
+    final byte[] best;
+
+    final SimulatedAnnealingReport.State report;
+
+    AnnealingCheckpoint(long temperatureSeed,
+                        double temperature,
+                        int attempt,
+                        int attemptBestEnergy,
+                        long iterationsWithoutImprovement,
+                        @NotNull byte[] current,
+                        @NotNull byte[] best,
+                        @NotNull SimulatedAnnealingReport.State report) {
+        this.temperatureSeed = temperatureSeed;
+        this.temperature = temperature;
+        this.attempt = attempt;
+        this.attemptBestEnergy = attemptBestEnergy;
+        this.iterationsWithoutImprovement = iterationsWithoutImprovement;
+        this.current = current;
+        this.best = best;
+        this.report = report;
+    }
+
+    void write(@NotNull DataOutput output) throws IOException {
+        output.writeLong(temperatureSeed);
+        output.writeDouble(temperature);
+        output.writeInt(attempt);
+        output.writeInt(attemptBestEnergy);
+        output.writeLong(iterationsWithoutImprovement);
+        output.writeInt(current.length);
+        output.write(current);
+        output.write(best);
+        report.write(output);
+    }
+
+    static AnnealingCheckpoint read(@NotNull DataInput input) throws IOException {
+        long temperatureSeed = input.readLong();
+        double temperature = input.readDouble();
+        int attempt = input.readInt();
+        int attemptBestEnergy = input.readInt();
+        long iterationsWithoutImprovement = input.readLong();
+
+        byte[] current = new byte[input.readInt()];
+        byte[] best = new byte[current.length];
+        input.readFully(current);
+        input.readFully(best);
+
+        return new AnnealingCheckpoint(temperatureSeed, temperature, attempt, attemptBestEnergy,
+                iterationsWithoutImprovement, current, best, SimulatedAnnealingReport.State.read(input));
+    }
+
+    /**
+     * Receives the checkpoints of a run.
+     */
+    interface Saver {
+
+        Saver NEVER = new Saver() {
+            @Override
+            public boolean isDue() {
+                return false;
+            }
+
+            @Override
+            public void save(@NotNull AnnealingCheckpoint checkpoint) {
+            }
+        };
+
+        /**
+         * Asked at the start of every temperature, so it must be cheap.
+         *
+         * @return whether a checkpoint should be taken now
+         */
+        boolean isDue();
+
+        void save(@NotNull AnnealingCheckpoint checkpoint);
+    }
+
+}
@@ -0,0 +1,293 @@
+import com.sun.istack.internal.NotNull;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Live counters of the annealing runs of this JVM, published through JMX and a periodic log line.
+ *
+ * Runs count moves in their {@link Equilibrium} anyway, so they only publish them once per temperature, and trials once
+ * per trial. Iterations pay nothing but the counter of {@link sudoku.Sudoku#takeRejectedProposals()}, which keeps the
+ * metrics cheap enough to stay on.
+ */
+final class AnnealingMetrics implements AnnealingMetricsMXBean {
+
+    static final String OBJECT_NAME = "sudoku:type=AnnealingMetrics";
+
+    static final AnnealingMetrics INSTANCE = new AnnealingMetrics();
+
+    private static final Logger LOGGER = Logger.getLogger(AnnealingMetrics.class.getName());
+
+    /**
+     * Time between the samples from which rates are measured and logged, configurable in seconds through the
+     * {@code sudoku.metrics.interval} system property. Rates are not measured and nothing is logged if it is not
+     * positive.
+     */
+    private static final long SAMPLING_INTERVAL_SECONDS = Long.getLong("sudoku.metrics.interval", 10);
+
+    private final LongAdder movesProposed = new LongAdder();
+    private final LongAdder movesAccepted = new LongAdder();
+    private final LongAdder rejectedProposals = new LongAdder();
+    private final LongAdder trialsCompleted = new LongAdder();
+    private final LongAdder trialsSolved = new LongAdder();
+    private final LongAdder trialsRejected = new LongAdder();
+    private final AtomicInteger trialsQueued = new AtomicInteger();
+    private final AtomicInteger trialsRunning = new AtomicInteger();
+
+    private volatile double temperature;
+    private volatile int energy;
+
+    /**
+     * In nanoseconds, guarded by itself.
+     */
+    private final ResultsSummary.Histogram solutionTimes = new ResultsSummary.Histogram();
+
+    /*
+     * Rates of the last sampling interval.
+     */
+    private volatile double movesProposedPerSecond;
+    private volatile double movesAcceptedPerSecond;
+    private volatile double rejectedProposalsPerSecond;
+
+    /*
+     * Guarded by this.
+     */
+    private int users;
+    private boolean registered;
+    private ScheduledExecutorService sampler;
+    private long lastSampleTime;
+    private long lastMovesProposed;
+    private long lastMovesAccepted;
+    private long lastRejectedProposals;
+
+    private AnnealingMetrics() {
+    }
+
+    /**
+     * Registers the MBean on first use and starts sampling, until every caller has called {@link #stop()}.
+     */
+    synchronized void start() {
+        if (users++ > 0) return;
+
+        if (!registered) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+            } catch (InstanceAlreadyExistsException e) {
+                // Left by a copy of this class loaded by another class loader
+            } catch (JMException e) {
+                throw new IllegalStateException("Failed to register " + OBJECT_NAME, e);
+            }
+            registered = true;
+        }
+
+        if (SAMPLING_INTERVAL_SECONDS > 0) {
+            lastSampleTime = System.nanoTime();
+            lastMovesProposed = movesProposed.sum();
+            lastMovesAccepted = movesAccepted.sum();
+            lastRejectedProposals = rejectedProposals.sum();
+
+            sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "annealing-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sampler.scheduleAtFixedRate(this::sample, SAMPLING_INTERVAL_SECONDS, SAMPLING_INTERVAL_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    synchronized void stop() {
+        if (--users > 0 || sampler == null) return;
+
+        sampler.shutdownNow();
+        sampler = null;
+    }
+
+    /**
+     * Publishes a temperature that just ended.
+     *
+     * @param rejectedProposals rejected since the previous temperature was published
+     */
+    void recordTemperature(long iterations, long accepted, long rejectedProposals, double temperature, int energy) {
+        movesProposed.add(iterations);
+        movesAccepted.add(accepted);
+        this.rejectedProposals.add(rejectedProposals);
+        this.temperature = temperature;
+        this.energy = energy;
+    }
+
+    void trialQueued() {
+        trialsQueued.incrementAndGet();
+    }
+
+    /**
+     * Withdraws a trial counted by {@link #trialQueued()} that was cancelled before it started.
+     */
+    void trialWithdrawn() {
+        trialsQueued.decrementAndGet();
+    }
+
+    /**
+     * Withdraws a trial counted by {@link #trialQueued()} that was turned down instead of started.
+     */
+    void trialRejected() {
+        trialWithdrawn();
+        trialsRejected.increment();
+    }
+
+    void trialStarted() {
+        trialsQueued.decrementAndGet();
+        trialsRunning.incrementAndGet();
+    }
+
+    /**
+     * Ends a trial counted by {@link #trialStarted()} that failed, so it is not counted as completed.
+     */
+    void trialFailed() {
+        trialsRunning.decrementAndGet();
+    }
+
+    void trialCompleted(@NotNull SimulatedAnnealingReport.Summary summary) {
+        trialCompleted(summary.isSolved(), summary.solutionTime);
+    }
+
+    /**
+     * @param solutionTime nanoseconds the trial took to solve its instance, ignored if it did not
+     */
+    void trialCompleted(boolean solved, long solutionTime) {
+        trialsRunning.decrementAndGet();
+        trialsCompleted.increment();
+
+        if (solved) {
+            trialsSolved.increment();
+            synchronized (solutionTimes) {
+                solutionTimes.record(solutionTime);
+            }
+        }
+    }
+
+    private synchronized void sample() {
+        long now = System.nanoTime();
+        long proposed = movesProposed.sum();
+        long accepted = movesAccepted.sum();
+        long rejected = rejectedProposals.sum();
+        double seconds = (now - lastSampleTime) / 1e9;
+
+        movesProposedPerSecond = (proposed - lastMovesProposed) / seconds;
+        movesAcceptedPerSecond = (accepted - lastMovesAccepted) / seconds;
+        rejectedProposalsPerSecond = (rejected - lastRejectedProposals) / seconds;
+
+        lastSampleTime = now;
+        lastMovesProposed = proposed;
+        lastMovesAccepted = accepted;
+        lastRejectedProposals = rejected;
+
+        LOGGER.info(String.format(Locale.ROOT,
+                "trials %d completed, %d solved, %d running, %d queued, %d rejected; moves %.0f/s proposed, %.0f/s accepted, " +
+                        "%.0f/s rejected draws; temperature %.4g, energy %d; solution time p50 %d ms, p99 %d ms",
+                getTrialsCompleted(), getTrialsSolved(), getTrialsRunning(), getTrialsQueued(), getTrialsRejected(),
+                movesProposedPerSecond, movesAcceptedPerSecond, rejectedProposalsPerSecond,
+                temperature, energy, getSolutionTimeMillisP50(), getSolutionTimeMillisP99()));
+    }
+
+    private long solutionTimeMillis(double quantile) {
+        synchronized (solutionTimes) {
+            return TimeUnit.NANOSECONDS.toMillis(solutionTimes.percentile(quantile));
+        }
+    }
+
+    @Override
+    public long getMovesProposed() {
+        return movesProposed.sum();
+    }
+
+    @Override
+    public long getMovesAccepted() {
+        return movesAccepted.sum();
+    }
+
+    @Override
+    public double getMovesProposedPerSecond() {
+        return movesProposedPerSecond;
+    }
+
+    @Override
+    public double getMovesAcceptedPerSecond() {
+        return movesAcceptedPerSecond;
+    }
+
+    @Override
+    public long getRejectedProposals() {
+        return rejectedProposals.sum();
+    }
+
+    @Override
+    public double getRejectedProposalsPerSecond() {
+        return rejectedProposalsPerSecond;
+    }
+
+    @Override
+    public double getTemperature() {
+        return temperature;
+    }
+
+    @Override
+    public int getEnergy() {
+        return energy;
+    }
+
+    @Override
+    public long getTrialsCompleted() {
+        return trialsCompleted.sum();
+    }
+
+    @Override
+    public long getTrialsSolved() {
+        return trialsSolved.sum();
+    }
+
+    @Override
+    public long getTrialsRejected() {
+        return trialsRejected.sum();
+    }
+
+    @Override
+    public int getTrialsQueued() {
+        return trialsQueued.get();
+    }
+
+    @Override
+    public int getTrialsRunning() {
+        return trialsRunning.get();
+    }
+
+    @Override
+    public long getSolutionTimeMillisP50() {
+        return solutionTimeMillis(0.5);
+    }
+
+    @Override
+    public long getSolutionTimeMillisP90() {
+        return solutionTimeMillis(0.9);
+    }
+
+    @Override
+    public long getSolutionTimeMillisP99() {
+        return solutionTimeMillis(0.99);
+    }
+
+    @Override
+    public long getSolutionTimeMillisMax() {
+        return solutionTimeMillis(1.0);
+    }
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Management interface of {@link AnnealingMetrics}, registered as {@value AnnealingMetrics#OBJECT_NAME} in the platform
+ * MBean server while trials run.
+ *
+ * Counters cover every run since the JVM started. Rates are measured over the last sampling interval, and the
+ * temperature and energy are those of the last temperature any run finished.
+ */
+public interface AnnealingMetricsMXBean {
+
+    long getMovesProposed();
+
+    long getMovesAccepted();
+
+    double getMovesProposedPerSecond();
+
+    double getMovesAcceptedPerSecond();
+
+    /**
+     * Draws rejected while proposing {@link sudoku.Sudoku.NeighborStrategy#RANDOM_SWAP_SQUARE} moves, each a spin of
+     * its rejection loop.
+     */
+    long getRejectedProposals();
+
+    double getRejectedProposalsPerSecond();
+
+    double getTemperature();
+
+    int getEnergy();
+
+    long getTrialsCompleted();
+
+    long getTrialsSolved();
+
+    /**
+     * Trials turned down, such as {@link SolverServer} requests arriving while its queue is full.
+     */
+    long getTrialsRejected();
+
+    /**
+     * Trials submitted to a runner's pool, or requests accepted by a {@link SolverServer}, which did not start yet.
+     */
+    int getTrialsQueued();
+
+    int getTrialsRunning();
+
+    long getSolutionTimeMillisP50();
+
+    long getSolutionTimeMillisP90();
+
+    long getSolutionTimeMillisP99();
+
+    long getSolutionTimeMillisMax();
+}
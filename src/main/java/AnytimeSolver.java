@@ -0,0 +1,110 @@
+import com.sun.istack.internal.NotNull;
+import sudoku.Sudoku;
+import sudoku.Sudoku.NeighborStrategy;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Anneals submitted instances in the background within a deadline or an iteration budget, for callers that would
+ * rather have a good board in time than a solution late.
+ *
+ * Every instance is annealed as by the trial runners, with the configured cooling schedule, equilibrium, stagnation
+ * policy and constraint propagation, until it is solved, its schedule ends or its budget runs out, whichever comes
+ * first. Its future then completes with the best board found, solved or not. Cancelling the future stops the run at its
+ * next poll, freeing its thread for the next instance.
+ *
+ * Deadlines count from submission, so time spent waiting for a thread counts as well, and an instance whose deadline
+ * passes before it starts completes with its randomly populated initial board.
+ */
+public final class AnytimeSolver implements AutoCloseable {
+
+    private final NeighborStrategy neighborStrategy;
+    private final double initialTemperature;
+    private final double minimumTemperature;
+    private final double coolingRate;
+    private final ExecutorService executor;
+
+    /**
+     * Source of the seed of every instance, guarded by itself.
+     */
+    private final SplittableRandom seeds;
+
+    /**
+     * @param parallelism amount of instances annealed concurrently
+     * @param seed        from which the seed of every instance is drawn, in submission order
+     */
+    public AnytimeSolver(@NotNull NeighborStrategy neighborStrategy,
+                         double initialTemperature,
+                         double minimumTemperature,
+                         double coolingRate,
+                         int parallelism,
+                         long seed) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism cannot be < 1");
+
+        this.neighborStrategy = neighborStrategy;
+        this.initialTemperature = initialTemperature;
+        this.minimumTemperature = minimumTemperature;
+        this.coolingRate = coolingRate;
+        this.executor = Executors.newFixedThreadPool(parallelism);
+        this.seeds = new SplittableRandom(seed);
+    }
+
+    /**
+     * Same as {@link #submit(Sudoku, long, TimeUnit, long)} without an iteration budget.
+     */
+    public CompletableFuture<Sudoku> submit(@NotNull Sudoku instance, long timeout, @NotNull TimeUnit unit) {
+        return submit(instance, timeout, unit, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param instance          to solve, which is left untouched
+     * @param timeout           from now until the best board found is returned, or {@link Long#MAX_VALUE} for no
+     *                          deadline
+     * @param maximumIterations the run performs at most, or {@link Long#MAX_VALUE} for no budget
+     *
+     * @return a future completing with the best board found once the run stops. Its {@link Sudoku#repetitions()} is
+     * {@code 0} if and only if it is a solution.
+     */
+    public CompletableFuture<Sudoku> submit(@NotNull Sudoku instance,
+                                            long timeout,
+                                            @NotNull TimeUnit unit,
+                                            long maximumIterations) {
+        if (timeout < 0) throw new IllegalArgumentException("timeout cannot be < 0");
+
+        long timeoutNanos = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : unit.toNanos(timeout);
+        long seed;
+        synchronized (seeds) {
+            seed = seeds.nextLong();
+        }
+
+        CompletableFuture<Sudoku> solution = new CompletableFuture<>();
+        AnnealingBudget budget = new AnnealingBudget(maximumIterations, timeoutNanos, solution::isDone);
+
+        executor.execute(() -> {
+            // Cancelled while waiting for a thread
+            if (solution.isDone()) return;
+
+            try {
+                solution.complete(SimulatedAnnealing.anneal(instance, neighborStrategy, initialTemperature,
+                        minimumTemperature, coolingRate, new SplittableRandom(seed), budget));
+            } catch (RuntimeException | Error e) {
+                solution.completeExceptionally(e);
+            }
+        });
+
+        return solution;
+    }
+
+    /**
+     * Stops accepting instances. Those already submitted still run until they stop on their own.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+}
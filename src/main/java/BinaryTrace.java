@@ -0,0 +1,279 @@
+import com.sun.istack.internal.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Compact binary format for annealing traces.
+ *
+ * A file starts with a header made of the {@link #MAGIC} and {@link #VERSION} ints, followed by any amount of chunks.
+ * A chunk holds consecutive rows of a single instance. It starts with the instance id and row count as ints, and the
+ * iteration and time, in nanoseconds since the run started, of its first row as longs. Then comes every column as a
+ * fixed width array of row count entries, in this order:
+ *
+ * <pre>
+ *     iteration   int,   offset from the chunk's first iteration
+ *     cost        int
+ *     bestCost    int
+ *     time        int,   microseconds since the chunk's first time
+ *     temperature float
+ *     attempt     short
+ * </pre>
+ *
+ * All values are big endian. Storing iterations and times relative to their chunk keeps rows at 22 bytes, about a third
+ * less than a text row for a 5x5 instance. Since chunk sizes are known from their row count, readers can skip the
+ * chunks of instances they are not interested in without decoding them.
+ */
+final class BinaryTrace {
+
+    static final int MAGIC = 0x53415452;
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int CHUNK_HEADER_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int ROW_BYTES = 4 * Integer.BYTES + Float.BYTES + Short.BYTES;
+
+    /**
+     * Rows buffered by a {@link Sink} before writing a chunk.
+     */
+    private static final int CHUNK_ROWS = 4096;
+
+    private BinaryTrace() {
+    }
+
+    static void writeHeader(@NotNull WritableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(channel, header);
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /**
+     * Buffers the rows of an instance column by column and writes them as a chunk every {@link #CHUNK_ROWS} rows, when
+     * the next row is too far from the first of the chunk to be stored as an offset, and when the instance finishes.
+     * Buffers are allocated once per sink, so appending a row allocates nothing.
+     */
+    static final class Sink implements TraceSink {
+
+        private final WritableByteChannel channel;
+        private final int id;
+        private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_HEADER_BYTES + CHUNK_ROWS * ROW_BYTES);
+
+        private final long[] iterations = new long[CHUNK_ROWS];
+        private final int[] costs = new int[CHUNK_ROWS];
+        private final int[] bestCosts = new int[CHUNK_ROWS];
+        private final long[] times = new long[CHUNK_ROWS];
+        private final float[] temperatures = new float[CHUNK_ROWS];
+        private final int[] attempts = new int[CHUNK_ROWS];
+        private int rows;
+
+        Sink(@NotNull WritableByteChannel channel, int id) {
+            this.channel = channel;
+            this.id = id;
+        }
+
+        @Override
+        public void append(long iteration, int cost, int bestCost, long timeNanos, double temperature, int attempt) {
+            // Rows are stored as int offsets from the first of their chunk, so sparse sampling may end chunks early
+            if (rows > 0 && (iteration - iterations[0] > Integer.MAX_VALUE
+                    || (timeNanos - times[0]) / 1_000 > Integer.MAX_VALUE)) {
+                writeChunk();
+            }
+
+            iterations[rows] = iteration;
+            costs[rows] = cost;
+            bestCosts[rows] = bestCost;
+            times[rows] = timeNanos;
+            temperatures[rows] = (float) temperature;
+            attempts[rows] = attempt;
+
+            if (++rows == CHUNK_ROWS) writeChunk();
+        }
+
+        /**
+         * Writes the buffered rows as a chunk of their own. The next rows start a new chunk, which readers handle like
+         * any other.
+         */
+        @Override
+        public void flush() {
+            if (rows > 0) writeChunk();
+        }
+
+        @Override
+        public void finish() {
+            flush();
+        }
+
+        private void writeChunk() {
+            long firstIteration = iterations[0];
+            long firstTime = times[0];
+
+            chunk.clear();
+            chunk.putInt(id).putInt(rows).putLong(firstIteration).putLong(firstTime);
+            for (int i = 0; i < rows; i++) chunk.putInt(Math.toIntExact(iterations[i] - firstIteration));
+            for (int i = 0; i < rows; i++) chunk.putInt(costs[i]);
+            for (int i = 0; i < rows; i++) chunk.putInt(bestCosts[i]);
+            for (int i = 0; i < rows; i++) chunk.putInt(Math.toIntExact((times[i] - firstTime) / 1_000));
+            for (int i = 0; i < rows; i++) chunk.putFloat(temperatures[i]);
+            for (int i = 0; i < rows; i++) chunk.putShort((short) attempts[i]);
+            chunk.flip();
+
+            try {
+                writeFully(channel, chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            rows = 0;
+        }
+    }
+
+    /**
+     * A decoded chunk. The same instance is refilled for every chunk handed to a {@link ChunkConsumer}, so consumers
+     * must copy whatever they want to keep.
+     */
+    static final class Chunk {
+        int id;
+        int rows;
+        long[] iterations = new long[0];
+        int[] costs = new int[0];
+        int[] bestCosts = new int[0];
+        long[] times = new long[0];
+        float[] temperatures = new float[0];
+        int[] attempts = new int[0];
+
+        private void read(ByteBuffer buffer, int id, int rows, long firstIteration, long firstTime) {
+            this.id = id;
+            this.rows = rows;
+
+            if (iterations.length < rows) {
+                iterations = new long[rows];
+                costs = new int[rows];
+                bestCosts = new int[rows];
+                times = new long[rows];
+                temperatures = new float[rows];
+                attempts = new int[rows];
+            }
+
+            for (int i = 0; i < rows; i++) iterations[i] = firstIteration + buffer.getInt();
+            buffer.asIntBuffer().get(costs, 0, rows);
+            buffer.position(buffer.position() + rows * Integer.BYTES);
+            buffer.asIntBuffer().get(bestCosts, 0, rows);
+            buffer.position(buffer.position() + rows * Integer.BYTES);
+            for (int i = 0; i < rows; i++) times[i] = firstTime + buffer.getInt() * 1_000L;
+            buffer.asFloatBuffer().get(temperatures, 0, rows);
+            buffer.position(buffer.position() + rows * Float.BYTES);
+            for (int i = 0; i < rows; i++) attempts[i] = buffer.getShort();
+        }
+    }
+
+    interface ChunkConsumer {
+        void accept(@NotNull Chunk chunk) throws IOException;
+    }
+
+    /**
+     * Decodes every chunk of {@code tracePath} whose instance id satisfies {@code ids}, in file order. Chunks of other
+     * instances are skipped without being read.
+     */
+    static void forEachChunk(@NotNull Path tracePath,
+                             @NotNull IntPredicate ids,
+                             @NotNull ChunkConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(tracePath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Math.max(HEADER_BYTES, CHUNK_HEADER_BYTES));
+            readFully(channel, header, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IOException("Not a binary trace -> " + tracePath);
+            if (header.getInt() != VERSION) throw new IOException("Unsupported binary trace version -> " + tracePath);
+
+            ByteBuffer columns = ByteBuffer.allocate(CHUNK_ROWS * ROW_BYTES);
+            Chunk chunk = new Chunk();
+
+            while (channel.position() < channel.size()) {
+                readFully(channel, header, CHUNK_HEADER_BYTES);
+                int id = header.getInt();
+                int rows = header.getInt();
+                long firstIteration = header.getLong();
+                long firstTime = header.getLong();
+
+                if (!ids.test(id)) {
+                    channel.position(channel.position() + (long) rows * ROW_BYTES);
+                    continue;
+                }
+
+                if (columns.capacity() < rows * ROW_BYTES) columns = ByteBuffer.allocate(rows * ROW_BYTES);
+                readFully(channel, columns, rows * ROW_BYTES);
+                chunk.read(columns, id, rows, firstIteration, firstTime);
+                consumer.accept(chunk);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        buffer.clear().limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new IOException("Truncated binary trace");
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Writes the rows of {@code tracePath} whose instance id satisfies {@code ids} as delimited text, with the same
+     * columns and units as the text results files.
+     *
+     * @param separator between columns, {@code ' '} produces files the plot scripts read directly
+     */
+    static void export(@NotNull Path tracePath,
+                       @NotNull Writer output,
+                       char separator,
+                       @NotNull IntPredicate ids) throws IOException {
+        output.write(TextTraceSink.HEADER.replace(' ', separator));
+
+        forEachChunk(tracePath, ids, chunk -> {
+            TextTraceSink sink = new TextTraceSink(output, String.valueOf(chunk.id), separator);
+
+            for (int i = 0; i < chunk.rows; i++) {
+                sink.append(chunk.iterations[i], chunk.costs[i], chunk.bestCosts[i], chunk.times[i],
+                        chunk.temperatures[i], chunk.attempts[i]);
+            }
+        });
+    }
+
+    /**
+     * Converts a binary trace into text.
+     *
+     * Usage: {@code BinaryTrace <trace> <output> [text|csv] [id...]}. The {@code text} format, the default, matches the
+     * whitespace separated results files; {@code csv} separates columns with commas. When ids are given only their
+     * rows are exported.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BinaryTrace <trace> <output> [text|csv] [id...]");
+            System.exit(1);
+        }
+
+        char separator = args.length > 2 && args[2].equalsIgnoreCase("csv") ? ',' : ' ';
+
+        Set<Integer> selectedIds = new HashSet<>();
+        for (int i = 3; i < args.length; i++) selectedIds.add(Integer.valueOf(args[i]));
+        IntPredicate ids = selectedIds.isEmpty() ? id -> true : selectedIds::contains;
+
+        try (BufferedWriter output = Files.newBufferedWriter(Paths.get(args[1]))) {
+            export(Paths.get(args[0]), output, separator, ids);
+        }
+    }
+
+}
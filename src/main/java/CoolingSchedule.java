@@ -0,0 +1,132 @@
+import com.sun.istack.internal.NotNull;
+
+import java.nio.file.Path;
+
+/**
+ * Decides the temperature that follows every equilibrium of an annealing run.
+ */
+interface CoolingSchedule {
+
+    /**
+     * @param temperature the equilibrium was run at
+     * @param equilibrium statistics of the iterations run at {@code temperature}
+     *
+     * @return the next temperature, lower than {@code temperature}
+     */
+    double next(double temperature, @NotNull Equilibrium equilibrium);
+
+    /**
+     * Lowers the temperature by {@code coolingRate} of its value every time.
+     */
+    static CoolingSchedule geometric(double coolingRate) {
+        if (coolingRate <= 0 || coolingRate >= 1) throw new IllegalArgumentException("coolingRate must be in (0, 1)");
+
+        return (temperature, equilibrium) -> temperature * (1.0 - coolingRate);
+    }
+
+    /**
+     * Lundy and Mees' schedule, {@code T / (1 + beta * T)}, which raises the inverse temperature by {@code beta} every
+     * time. It drops fast while hot and spends most of its temperatures close to the minimum.
+     */
+    static CoolingSchedule lundyMees(double beta) {
+        if (beta <= 0) throw new IllegalArgumentException("beta must be > 0");
+
+        return (temperature, equilibrium) -> temperature / (1.0 + beta * temperature);
+    }
+
+    /**
+     * Cools by {@code coolingRate} while the chain accepts almost every move or almost none, where staying any longer
+     * teaches nothing, and by half as much, in logarithmic terms, in between.
+     *
+     * @param lowAcceptance  ratio under which the chain is considered frozen
+     * @param highAcceptance ratio over which the chain is considered random
+     */
+    static CoolingSchedule acceptanceRatio(double coolingRate, double lowAcceptance, double highAcceptance) {
+        if (coolingRate <= 0 || coolingRate >= 1) throw new IllegalArgumentException("coolingRate must be in (0, 1)");
+
+        double fastFactor = 1.0 - coolingRate;
+        double slowFactor = Math.sqrt(fastFactor);
+
+        return (temperature, equilibrium) -> {
+            double ratio = equilibrium.acceptanceRatio();
+            return temperature * (ratio < lowAcceptance || ratio > highAcceptance ? fastFactor : slowFactor);
+        };
+    }
+
+    /**
+     * Huang, Romeo and Sangiovanni-Vincentelli's schedule, {@code T * exp(-lambda * T / sigma)} where {@code sigma} is
+     * the standard deviation of the energy at {@code T}. Temperatures at which the energy fluctuates a lot, where the
+     * structure of the board is being decided, are left slowly. Cooling is never faster than {@code coolingRate}, which
+     * is also used once the energy stops fluctuating at all.
+     */
+    static CoolingSchedule energyVariance(double coolingRate, double lambda) {
+        if (coolingRate <= 0 || coolingRate >= 1) throw new IllegalArgumentException("coolingRate must be in (0, 1)");
+        if (lambda <= 0) throw new IllegalArgumentException("lambda must be > 0");
+
+        double fastestFactor = 1.0 - coolingRate;
+
+        return (temperature, equilibrium) -> {
+            double deviation = equilibrium.energyStandardDeviation();
+            if (deviation == 0) return temperature * fastestFactor;
+
+            return temperature * Math.max(fastestFactor, Math.exp(-lambda * temperature / deviation));
+        };
+    }
+
+    enum Type {
+        /**
+         * {@link #geometric(double)}, the default.
+         */
+        GEOMETRIC,
+        /**
+         * {@link #lundyMees(double)}, with a {@code beta} that reaches the minimum temperature after as many
+         * temperatures as the geometric schedule would.
+         */
+        LUNDY_MEES,
+        /**
+         * {@link #acceptanceRatio(double, double, double)}, considering chains frozen under 2% of accepted moves and
+         * random over 80%.
+         */
+        ACCEPTANCE_RATIO,
+        /**
+         * {@link #energyVariance(double, double)} with {@code lambda = 0.7}.
+         */
+        ENERGY_VARIANCE;
+
+        @NotNull
+        CoolingSchedule create(double initialTemperature, double minimumTemperature, double coolingRate) {
+            switch (this) {
+                case GEOMETRIC:
+                    return geometric(coolingRate);
+                case LUNDY_MEES:
+                    double steps = Math.ceil(Math.log(minimumTemperature / initialTemperature) / Math.log(1.0 - coolingRate));
+                    return lundyMees((1.0 / minimumTemperature - 1.0 / initialTemperature) / Math.max(steps, 1.0));
+                case ACCEPTANCE_RATIO:
+                    return acceptanceRatio(coolingRate, 0.02, 0.8);
+                case ENERGY_VARIANCE:
+                    return energyVariance(coolingRate, 0.7);
+                default:
+                    throw new IllegalStateException("Invalid CoolingSchedule type -> " + this);
+            }
+        }
+
+        /**
+         * @return {@code resultsFilePath} with the schedule name appended, unless it is {@link #GEOMETRIC}, so results
+         * of different schedules never mix
+         */
+        Path resolve(@NotNull Path resultsFilePath) {
+            if (this == GEOMETRIC) return resultsFilePath;
+
+            String fileName = resultsFilePath.getFileName().toString();
+            return resultsFilePath.resolveSibling(fileName.replaceAll("\\.txt$", "_" + name().toLowerCase() + ".txt"));
+        }
+
+        /**
+         * Reads the type from the {@code sudoku.cooling} system property, {@code geometric} by default.
+         */
+        static Type fromSystemProperties() {
+            return valueOf(System.getProperty("sudoku.cooling", "GEOMETRIC").toUpperCase());
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Statistics of the iterations spent at the current temperature, which also decide when the chain is close enough to
+ * equilibrium to cool down.
+ *
+ * A temperature lasts at most {@link #maximumIterations}. When a {@link #tolerance} is given, iterations are grouped
+ * in windows and the temperature ends early as soon as the acceptance ratios of two consecutive windows differ by no
+ * more than it. Chains that are frozen, accepting almost nothing, or fully random, accepting almost everything, reach
+ * that point after two windows, instead of spending the whole maximum at a temperature where nothing is learned.
+ */
+final class Equilibrium {
+
+    final long maximumIterations;
+    final long window;
+    final double tolerance;
+
+    private long iterations;
+    private long accepted;
+    private long windowAccepted;
+    private double previousWindowRatio;
+
+    /*
+     * Running mean and sum of squared deviations of the energy, as in Welford's algorithm.
+     */
+    private double energyMean;
+    private double energySquaredDeviations;
+
+    /**
+     * @param maximumIterations at every temperature
+     * @param window            iterations over which acceptance ratios are compared
+     * @param tolerance         between the acceptance ratios of consecutive windows under which equilibrium is
+     *                          considered reached, or a negative number to always run {@code maximumIterations}
+     */
+    Equilibrium(long maximumIterations, long window, double tolerance) {
+        if (maximumIterations < 1) throw new IllegalArgumentException("maximumIterations cannot be < 1");
+        if (window < 1) throw new IllegalArgumentException("window cannot be < 1");
+
+        this.maximumIterations = maximumIterations;
+        this.window = window;
+        this.tolerance = tolerance;
+        reset();
+    }
+
+    /**
+     * Reads the window and tolerance from the {@code sudoku.equilibrium.window} and
+     * {@code sudoku.equilibrium.tolerance} system properties. The window defaults to one iteration per cell, and
+     * temperatures never end early unless a tolerance is given.
+     *
+     * @param maximumIterations at every temperature
+     * @param cellCount         of the boards being annealed
+     */
+    static Equilibrium fromSystemProperties(long maximumIterations, long cellCount) {
+        return new Equilibrium(maximumIterations,
+                Long.getLong("sudoku.equilibrium.window", cellCount),
+                Double.parseDouble(System.getProperty("sudoku.equilibrium.tolerance", "-1")));
+    }
+
+    /**
+     * Forgets every iteration, as done when the temperature changes.
+     */
+    void reset() {
+        iterations = 0;
+        accepted = 0;
+        windowAccepted = 0;
+        previousWindowRatio = Double.NaN;
+        energyMean = 0;
+        energySquaredDeviations = 0;
+    }
+
+    /**
+     * @param energy   of the current board after the iteration
+     * @param accepted whether the proposed move was applied
+     *
+     * @return whether the temperature should end after this iteration
+     */
+    boolean record(int energy, boolean accepted) {
+        iterations++;
+        if (accepted) {
+            this.accepted++;
+            windowAccepted++;
+        }
+
+        double deviation = energy - energyMean;
+        energyMean += deviation / iterations;
+        energySquaredDeviations += deviation * (energy - energyMean);
+
+        if (iterations >= maximumIterations) return true;
+        if (tolerance < 0 || iterations % window != 0) return false;
+
+        double windowRatio = (double) windowAccepted / window;
+        boolean stable = Math.abs(windowRatio - previousWindowRatio) <= tolerance;
+
+        previousWindowRatio = windowRatio;
+        windowAccepted = 0;
+
+        return stable;
+    }
+
+    long iterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the iterations at this temperature whose move was applied
+     */
+    long accepted() {
+        return accepted;
+    }
+
+    /**
+     * @return the fraction of iterations at this temperature whose move was applied
+     */
+    double acceptanceRatio() {
+        return iterations == 0 ? 0.0 : (double) accepted / iterations;
+    }
+
+    /**
+     * @return the standard deviation of the energy over the iterations at this temperature
+     */
+    double energyStandardDeviation() {
+        return iterations < 2 ? 0.0 : Math.sqrt(energySquaredDeviations / (iterations - 1));
+    }
+
+}
@@ -0,0 +1,291 @@
+import com.sun.istack.internal.NotNull;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.io.FileHandler;
+import sudoku.Sudoku.NeighborStrategy;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every combination of the parameters listed in a sweep file, one {@link SimulatedAnnealing.Experiment} each.
+ *
+ * Sweep files are properties files whose keys take comma separated lists:
+ *
+ *      datasets = kaggle, difficulty, params_fixation
+ *      squareSizes = 4, 5
+ *      difficulties = medium, hard, genius
+ *      strategies = RANDOM_SWAP_SQUARE, cs
+ *      initialTemperatures = 1000
+ *      minimumTemperatures = 0.01, 0.1
+ *      coolingRates = 0.9, 0.99
+ *      parallelism = 8
+ *
+ * Strategies go by name or shorthand. Square sizes are ignored by the {@code kaggle} dataset, which only holds 3x3
+ * instances, and difficulties by every dataset but {@code difficulty}. Parallelism is optional, defaulting to the
+ * {@code sudoku.parallelism} system property or else the available processors. Every other setting, such as the engine
+ * or the cooling schedule, is read from the usual system properties and shared by the whole sweep.
+ *
+ * Experiments whose results files already hold every trial are skipped, and the rest resume where they stopped. They
+ * run concurrently, submitting their trials to a single pool of threads which runs the queued trials of the experiment
+ * expected to take the longest first. Other experiments get the threads it leaves idle, and threads freed by finished
+ * experiments go to the ones still running, so the last one is not left alone on a share of the machine.
+ */
+public final class ExperimentSweep {
+
+    private final List<SimulatedAnnealing.Experiment> experiments;
+
+    private ExperimentSweep(@NotNull List<SimulatedAnnealing.Experiment> experiments) {
+        this.experiments = experiments;
+    }
+
+    /**
+     * Expands the sweep file at {@code path}, read into {@code configuration}, into its experiments. Combinations
+     * leading to the same results file are only kept once.
+     */
+    static ExperimentSweep read(@NotNull PropertiesConfiguration configuration, @NotNull Path path) {
+        List<String> datasets = list(configuration, String.class, "datasets", path);
+        List<NeighborStrategy> strategies = new ArrayList<>();
+        for (String strategy : list(configuration, String.class, "strategies", path)) strategies.add(strategy(strategy));
+        List<Double> initialTemperatures = list(configuration, Double.class, "initialTemperatures", path);
+        List<Double> minimumTemperatures = list(configuration, Double.class, "minimumTemperatures", path);
+        List<Double> coolingRates = list(configuration, Double.class, "coolingRates", path);
+
+        Map<Path, SimulatedAnnealing.Experiment> experiments = new LinkedHashMap<>();
+        for (String dataset : datasets) {
+            for (NeighborStrategy strategy : strategies) {
+                for (double initialTemperature : initialTemperatures) {
+                    for (double minimumTemperature : minimumTemperatures) {
+                        for (double coolingRate : coolingRates) {
+                            for (SimulatedAnnealing.Experiment experiment : experiments(configuration, path, dataset,
+                                    strategy, initialTemperature, minimumTemperature, coolingRate)) {
+                                experiments.putIfAbsent(experiment.resultsFilePath, experiment);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return new ExperimentSweep(new ArrayList<>(experiments.values()));
+    }
+
+    private static PropertiesConfiguration load(Path path) {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.setListDelimiterHandler(new DefaultListDelimiterHandler(','));
+
+        try {
+            new FileHandler(configuration).load(path.toFile());
+        } catch (ConfigurationException e) {
+            throw new RuntimeException("Failed to read sweep file " + path, e);
+        }
+
+        return configuration;
+    }
+
+    private static <T> List<T> list(PropertiesConfiguration configuration, Class<T> type, String key, Path path) {
+        List<T> values = configuration.getList(type, key);
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("Sweep file " + path + " lacks " + key);
+        }
+
+        return values;
+    }
+
+    private static NeighborStrategy strategy(String name) {
+        for (NeighborStrategy strategy : NeighborStrategy.values()) {
+            if (strategy.name().equalsIgnoreCase(name) || strategy.shorthand().equalsIgnoreCase(name)) return strategy;
+        }
+
+        throw new IllegalArgumentException("Invalid NeighborStrategy -> " + name);
+    }
+
+    private static List<SimulatedAnnealing.Experiment> experiments(PropertiesConfiguration configuration,
+                                                                   Path path,
+                                                                   String dataset,
+                                                                   NeighborStrategy strategy,
+                                                                   double initialTemperature,
+                                                                   double minimumTemperature,
+                                                                   double coolingRate) {
+        List<SimulatedAnnealing.Experiment> experiments = new ArrayList<>();
+
+        switch (dataset.toLowerCase()) {
+            case "kaggle":
+                experiments.add(SimulatedAnnealing.kaggleExperiment(strategy, initialTemperature, minimumTemperature,
+                        coolingRate));
+                break;
+            case "difficulty":
+                for (int squareSize : list(configuration, Integer.class, "squareSizes", path)) {
+                    for (String difficulty : list(configuration, String.class, "difficulties", path)) {
+                        experiments.add(SimulatedAnnealing.perDifficultyExperiment(squareSize, strategy,
+                                initialTemperature, minimumTemperature, coolingRate,
+                                SimulatedAnnealing.Difficulty.valueOf(difficulty.toUpperCase())));
+                    }
+                }
+                break;
+            case "params_fixation":
+                for (int squareSize : list(configuration, Integer.class, "squareSizes", path)) {
+                    experiments.add(SimulatedAnnealing.parametersFixationExperiment(squareSize, strategy,
+                            initialTemperature, minimumTemperature, coolingRate));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid dataset -> " + dataset);
+        }
+
+        return experiments;
+    }
+
+    /**
+     * Runs every experiment with trials left on a pool of {@code parallelism} threads. Experiments are ranked by
+     * {@link SimulatedAnnealing.Experiment#expectedIterations(int)}, longest first, and each keeps up to twice the
+     * pool's threads worth of trials submitted. The pool runs queued trials by the rank of their experiment, so the
+     * longest experiments take the machine first and shorter ones fill the gaps, down to the last one left.
+     */
+    void run(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism cannot be < 1");
+
+        List<SimulatedAnnealing.Experiment> pending = new ArrayList<>();
+        Map<SimulatedAnnealing.Experiment, Double> expectedIterations = new HashMap<>();
+        for (SimulatedAnnealing.Experiment experiment : experiments) {
+            int remainingTrials = experiment.remainingTrials();
+            if (remainingTrials == 0) continue;
+
+            pending.add(experiment);
+            expectedIterations.put(experiment, experiment.expectedIterations(remainingTrials));
+        }
+        if (pending.isEmpty()) return;
+
+        pending.sort(Comparator.comparing(expectedIterations::get, Comparator.reverseOrder()));
+
+        LongestFirstExecutor trialExecutor = new LongestFirstExecutor(parallelism);
+        // Each experiment's runner only submits trials and writes their reports, so it gets a thread of its own
+        ExecutorService executor = Executors.newFixedThreadPool(pending.size());
+        List<Future<?>> futures = new ArrayList<>(pending.size());
+
+        try {
+            for (int rank = 0; rank < pending.size(); rank++) {
+                SimulatedAnnealing.Experiment experiment = pending.get(rank);
+                ExecutorService rankedExecutor = trialExecutor.ranked(rank);
+                futures.add(executor.submit(() -> experiment.run(rankedExecutor, parallelism)));
+            }
+            for (Future<?> future : futures) future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+            trialExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Pool running the trials of a sweep by the rank of their experiment, then in submission order. Experiments submit
+     * through {@link #ranked(int)} views, since the pool itself cannot tell their trials apart.
+     */
+    private static final class LongestFirstExecutor extends ThreadPoolExecutor {
+        private final AtomicLong submissions = new AtomicLong();
+
+        LongestFirstExecutor(int parallelism) {
+            super(parallelism, parallelism, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+            // Otherwise the first trials submitted would skip the queue, whatever their rank
+            prestartAllCoreThreads();
+        }
+
+        /**
+         * @param rank of the experiment submitting to the view, {@code 0} for the one expected to take the longest
+         *
+         * @return a view queuing tasks in this pool with {@code rank}. It shares the pool's lifecycle.
+         */
+        ExecutorService ranked(int rank) {
+            return new RankedExecutor(rank);
+        }
+
+        private final class RankedExecutor extends AbstractExecutorService {
+            private final int rank;
+
+            private RankedExecutor(int rank) {
+                this.rank = rank;
+            }
+
+            @Override
+            protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+                return new RankedTask<>(callable, rank, submissions.getAndIncrement());
+            }
+
+            @Override
+            protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+                return newTaskFor(Executors.callable(runnable, value));
+            }
+
+            @Override
+            public void execute(@NotNull Runnable command) {
+                LongestFirstExecutor.this.execute(command instanceof RankedTask ? command : newTaskFor(command, null));
+            }
+
+            @Override
+            public void shutdown() {
+                LongestFirstExecutor.this.shutdown();
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return LongestFirstExecutor.this.shutdownNow();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return LongestFirstExecutor.this.isShutdown();
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return LongestFirstExecutor.this.isTerminated();
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+                return LongestFirstExecutor.this.awaitTermination(timeout, unit);
+            }
+        }
+    }
+
+    private static final class RankedTask<T> extends FutureTask<T> implements Comparable<RankedTask<?>> {
+        private final int rank;
+        private final long submission;
+
+        private RankedTask(@NotNull Callable<T> callable, int rank, long submission) {
+            super(callable);
+            this.rank = rank;
+            this.submission = submission;
+        }
+
+        @Override
+        public int compareTo(@NotNull RankedTask<?> other) {
+            if (rank != other.rank) return Integer.compare(rank, other.rank);
+
+            return Long.compare(submission, other.submission);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: ExperimentSweep <sweep file>");
+            System.exit(1);
+        }
+
+        Path path = Paths.get(args[0]);
+        PropertiesConfiguration configuration = load(path);
+        int parallelism = configuration.getInt("parallelism",
+                Integer.getInteger("sudoku.parallelism", Runtime.getRuntime().availableProcessors()));
+
+        read(configuration, path).run(parallelism);
+    }
+
+}
@@ -0,0 +1,263 @@
+import com.sun.istack.internal.NotNull;
+import sudoku.Sudoku;
+import sudoku.Sudoku.NeighborStrategy;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+
+/**
+ * Replica exchange (parallel tempering) solver for a single {@link Sudoku} instance.
+ *
+ * Every replica anneals its own copy of the instance at a fixed temperature on its own thread. After each sweep of
+ * {@code sweepIterations} moves all replicas meet at a barrier, where states of neighboring temperatures are swapped
+ * with the Metropolis criterion. Hot replicas keep exploring while cold ones refine, and good states found by a hot
+ * replica can travel down the ladder. Every replica stops as soon as any of them reaches zero repetitions.
+ *
+ * {@link #main(String[])} solves a single instance file, in the format read by
+ * {@link Sudoku.ValueSeparatorFileConfig} with values separated by spaces, and is configured through system properties:
+ *
+ *      sudoku.tempering.replicas   replicas, one per thread, the available processors by default but at least 2
+ *      sudoku.tempering.maximum    temperature of the hottest replica, 2.0 by default
+ *      sudoku.tempering.minimum    temperature of the coldest replica, 0.1 by default
+ *      sudoku.tempering.sweep      moves between exchanges, one per cell by default
+ *      sudoku.tempering.sweeps     exchange rounds after which the search gives up, 100000 by default
+ *      sudoku.seed                 seed of the search
+ *
+ * The replicas follow a {@link #geometricLadder}, and moves are {@link NeighborStrategy#RANDOM_SWAP_SQUARE} swaps.
+ */
+public final class ParallelTempering {
+
+    private final Replica[] replicas;
+    private final NeighborStrategy neighborStrategy;
+    private final long sweepIterations;
+    private final long maximumSweeps;
+
+    /**
+     * Used by {@link #exchange()} only, which never runs concurrently with itself.
+     */
+    private final SplittableRandom exchangeRandom;
+
+    private volatile boolean solved;
+    private volatile boolean finished;
+    private long sweeps;
+    private long acceptedExchanges;
+
+    private ParallelTempering(@NotNull Sudoku initial,
+                              @NotNull NeighborStrategy neighborStrategy,
+                              @NotNull double[] temperatures,
+                              long sweepIterations,
+                              long maximumSweeps,
+                              long seed) {
+        if (temperatures.length < 1) throw new IllegalArgumentException("temperatures cannot be empty");
+        if (sweepIterations < 1) throw new IllegalArgumentException("sweepIterations cannot be < 1");
+        if (maximumSweeps < 1) throw new IllegalArgumentException("maximumSweeps cannot be < 1");
+
+        this.neighborStrategy = neighborStrategy;
+        this.sweepIterations = sweepIterations;
+        this.maximumSweeps = maximumSweeps;
+
+        exchangeRandom = new SplittableRandom(seed);
+        replicas = new Replica[temperatures.length];
+        for (int i = 0; i < temperatures.length; i++) {
+            SplittableRandom random = exchangeRandom.split();
+            Sudoku state = initial.snapshot();
+            state.populateNonFixed(random);
+            replicas[i] = new Replica(temperatures[i], state, random);
+        }
+    }
+
+    /**
+     * Solves {@code initial} with one replica per temperature, each running on its own thread.
+     *
+     * @param temperatures    one temperature per replica, ordered from hottest to coldest
+     * @param sweepIterations moves each replica performs between exchange attempts
+     * @param maximumSweeps   exchange rounds after which the search gives up
+     * @param seed            of the random source every replica and the exchanges draw from. Each replica gets its own
+     *                        source split from it, so replicas never contend for one.
+     *
+     * @return the outcome of the search, including the best board found by any replica
+     */
+    public static Result solve(@NotNull Sudoku initial,
+                               @NotNull NeighborStrategy neighborStrategy,
+                               @NotNull double[] temperatures,
+                               long sweepIterations,
+                               long maximumSweeps,
+                               long seed) {
+        return new ParallelTempering(initial, neighborStrategy, temperatures, sweepIterations, maximumSweeps, seed).run();
+    }
+
+    /**
+     * @return {@code count} temperatures decreasing geometrically from {@code maximumTemperature} to
+     * {@code minimumTemperature}, which keeps the exchange acceptance rate roughly even along the ladder
+     */
+    public static double[] geometricLadder(double maximumTemperature, double minimumTemperature, int count) {
+        if (count < 1) throw new IllegalArgumentException("count cannot be < 1");
+        if (minimumTemperature <= 0 || maximumTemperature < minimumTemperature) {
+            throw new IllegalArgumentException("Temperatures must satisfy 0 < minimum <= maximum");
+        }
+
+        double[] temperatures = new double[count];
+        double ratio = count == 1 ? 1.0 : Math.pow(minimumTemperature / maximumTemperature, 1.0 / (count - 1));
+
+        temperatures[0] = maximumTemperature;
+        for (int i = 1; i < count; i++) temperatures[i] = temperatures[i - 1] * ratio;
+
+        return temperatures;
+    }
+
+    private Result run() {
+        long startTime = System.nanoTime();
+
+        CyclicBarrier barrier = new CyclicBarrier(replicas.length, this::exchange);
+        ExecutorService executor = Executors.newFixedThreadPool(replicas.length);
+        List<Callable<Void>> tasks = new ArrayList<>(replicas.length);
+        for (Replica replica : replicas) {
+            tasks.add(() -> {
+                anneal(replica, barrier);
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Replica best = replicas[0];
+        for (Replica replica : replicas) {
+            if (replica.bestEnergy < best.bestEnergy) best = replica;
+        }
+
+        return new Result(best.best, sweeps, acceptedExchanges, System.nanoTime() - startTime);
+    }
+
+    private void anneal(Replica replica, CyclicBarrier barrier) throws BrokenBarrierException, InterruptedException {
+        Sudoku.Move move = new Sudoku.Move();
+
+        while (!finished) {
+            Sudoku current = replica.state;
+            int currentEnergy = current.repetitions();
+
+            for (long i = 0; i < sweepIterations && !solved; i++) {
+                current.propose(neighborStrategy, move, replica.random);
+                int neighborEnergy = currentEnergy + move.delta();
+
+                if (neighborEnergy <= currentEnergy
+                        || Math.exp((currentEnergy - neighborEnergy) / replica.temperature) > replica.random.nextDouble()) {
+                    current.apply(move);
+                    currentEnergy = neighborEnergy;
+
+                    if (currentEnergy < replica.bestEnergy) {
+                        replica.bestEnergy = currentEnergy;
+                        replica.best = current.snapshot();
+
+                        if (currentEnergy == 0) solved = true;
+                    }
+                }
+            }
+
+            barrier.await();
+        }
+    }
+
+    /**
+     * Runs on the last thread reaching the barrier, while every other replica waits, so states can be swapped safely.
+     * Even and odd neighboring pairs alternate between sweeps so every pair gets a chance to exchange.
+     */
+    private void exchange() {
+        sweeps++;
+
+        if (solved || sweeps >= maximumSweeps) {
+            finished = true;
+            return;
+        }
+
+        for (int i = (int) (sweeps % 2); i + 1 < replicas.length; i += 2) {
+            Replica hotter = replicas[i];
+            Replica colder = replicas[i + 1];
+
+            double exponent = (colder.state.repetitions() - hotter.state.repetitions())
+                    * (1.0 / colder.temperature - 1.0 / hotter.temperature);
+
+            if (exponent >= 0 || Math.exp(exponent) > exchangeRandom.nextDouble()) {
+                Sudoku buffer = hotter.state;
+                hotter.state = colder.state;
+                colder.state = buffer;
+                acceptedExchanges++;
+            }
+        }
+    }
+
+    /**
+     * Prints the repetitions of the best board found, the sweeps, exchanges and milliseconds it took, then the board.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ParallelTempering <instance file>");
+            System.exit(1);
+        }
+
+        Sudoku instance = Sudoku.of(new Sudoku.ValueSeparatorFileConfig(Paths.get(args[0]), ' '));
+        int replicas = Integer.getInteger("sudoku.tempering.replicas",
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+        double[] temperatures = geometricLadder(
+                Double.parseDouble(System.getProperty("sudoku.tempering.maximum", "2.0")),
+                Double.parseDouble(System.getProperty("sudoku.tempering.minimum", "0.1")),
+                replicas);
+        long sweepIterations = Long.getLong("sudoku.tempering.sweep", (long) Math.pow(instance.getSquareSize(), 4));
+        long maximumSweeps = Long.getLong("sudoku.tempering.sweeps", 100_000);
+
+        Result result = solve(instance, NeighborStrategy.RANDOM_SWAP_SQUARE, temperatures, sweepIterations,
+                maximumSweeps, Long.getLong("sudoku.seed", System.nanoTime()));
+
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out));
+        writer.write(String.format("repetitions %d, sweeps %d, exchanges %d, %d ms%n", result.best.repetitions(),
+                result.sweeps, result.acceptedExchanges, TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos)));
+        result.best.dump(writer);
+        writer.newLine();
+        writer.flush();
+    }
+
+    private static final class Replica {
+        final double temperature;
+        final SplittableRandom random;
+        Sudoku state;
+        Sudoku best;
+        int bestEnergy;
+
+        private Replica(double temperature, Sudoku state, SplittableRandom random) {
+            this.temperature = temperature;
+            this.state = state;
+            this.random = random;
+            best = state.snapshot();
+            bestEnergy = state.repetitions();
+        }
+    }
+
+    public static final class Result {
+        public final Sudoku best;
+        public final long sweeps;
+        public final long acceptedExchanges;
+        public final long elapsedNanos;
+
+        private Result(Sudoku best, long sweeps, long acceptedExchanges, long elapsedNanos) {
+            this.best = best;
+            this.sweeps = sweeps;
+            this.acceptedExchanges = acceptedExchanges;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+import com.sun.istack.internal.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates of every trial of a results file, updated as trials complete, so routine effectiveness reports need no
+ * trace at all.
+ *
+ * Neither memory nor the written summary grow with the amount of trials. Times and iteration counts go into
+ * {@link Histogram}s, and acceptance is summed per temperature index, the n-th temperature of every run, which geometric
+ * runs of a results file all spend at the same temperature.
+ */
+final class ResultsSummary {
+
+    private long trials;
+    private long solved;
+
+    /**
+     * Trials per best cost reached.
+     */
+    private final TreeMap<Integer, Long> bestCosts = new TreeMap<>();
+
+    private final Histogram times = new Histogram();
+    private final Histogram iterations = new Histogram();
+
+    /**
+     * Of solved trials only.
+     */
+    private final Histogram solutionTimes = new Histogram();
+    private final Histogram solutionIterations = new Histogram();
+
+    /*
+     * Sums over the trials that reached every temperature index.
+     */
+    private double[] temperatureSums = new double[0];
+    private long[] temperatureTrials = new long[0];
+    private long[] temperatureIterations = new long[0];
+    private long[] temperatureAccepted = new long[0];
+
+    long trials() {
+        return trials;
+    }
+
+    void add(@NotNull SimulatedAnnealingReport.Summary summary) {
+        trials++;
+        bestCosts.merge(summary.bestCost, 1L, Long::sum);
+        times.record(summary.time);
+        iterations.record(summary.iterations);
+
+        if (summary.isSolved()) {
+            solved++;
+            solutionTimes.record(summary.solutionTime);
+            // Iterations are counted from 1, so a board solved by its first iteration took one
+            solutionIterations.record(summary.solutionIteration + 1);
+        }
+
+        int temperatureCount = summary.temperatures.length;
+        if (temperatureCount > temperatureSums.length) {
+            temperatureSums = Arrays.copyOf(temperatureSums, temperatureCount);
+            temperatureTrials = Arrays.copyOf(temperatureTrials, temperatureCount);
+            temperatureIterations = Arrays.copyOf(temperatureIterations, temperatureCount);
+            temperatureAccepted = Arrays.copyOf(temperatureAccepted, temperatureCount);
+        }
+        for (int i = 0; i < temperatureCount; i++) {
+            temperatureSums[i] += summary.temperatures[i];
+            temperatureTrials[i]++;
+            temperatureIterations[i] += summary.temperatureIterations[i];
+            temperatureAccepted[i] += summary.temperatureAccepted[i];
+        }
+    }
+
+    void write(@NotNull DataOutput output) throws IOException {
+        output.writeLong(trials);
+        output.writeLong(solved);
+
+        output.writeInt(bestCosts.size());
+        for (Map.Entry<Integer, Long> entry : bestCosts.entrySet()) {
+            output.writeInt(entry.getKey());
+            output.writeLong(entry.getValue());
+        }
+
+        times.write(output);
+        iterations.write(output);
+        solutionTimes.write(output);
+        solutionIterations.write(output);
+
+        output.writeInt(temperatureSums.length);
+        for (int i = 0; i < temperatureSums.length; i++) {
+            output.writeDouble(temperatureSums[i]);
+            output.writeLong(temperatureTrials[i]);
+            output.writeLong(temperatureIterations[i]);
+            output.writeLong(temperatureAccepted[i]);
+        }
+    }
+
+    static ResultsSummary read(@NotNull DataInput input) throws IOException {
+        ResultsSummary summary = new ResultsSummary();
+        summary.trials = input.readLong();
+        summary.solved = input.readLong();
+
+        int bestCostCount = input.readInt();
+        for (int i = 0; i < bestCostCount; i++) summary.bestCosts.put(input.readInt(), input.readLong());
+
+        summary.times.read(input);
+        summary.iterations.read(input);
+        summary.solutionTimes.read(input);
+        summary.solutionIterations.read(input);
+
+        int temperatureCount = input.readInt();
+        summary.temperatureSums = new double[temperatureCount];
+        summary.temperatureTrials = new long[temperatureCount];
+        summary.temperatureIterations = new long[temperatureCount];
+        summary.temperatureAccepted = new long[temperatureCount];
+        for (int i = 0; i < temperatureCount; i++) {
+            summary.temperatureSums[i] = input.readDouble();
+            summary.temperatureTrials[i] = input.readLong();
+            summary.temperatureIterations[i] = input.readLong();
+            summary.temperatureAccepted[i] = input.readLong();
+        }
+
+        return summary;
+    }
+
+    /**
+     * Writes the summary as blank line separated tables of whitespace separated columns, each with its own header.
+     */
+    void writeText(@NotNull Writer writer) throws IOException {
+        writer.write(String.format(Locale.ROOT, "trials solved solved_ratio\n%d %d %.4f\n",
+                trials, solved, trials == 0 ? 0.0 : (double) solved / trials));
+
+        writer.write("\nmetric mean p50 p90 p99 max\n");
+        times.writeText(writer, "time_ns");
+        iterations.writeText(writer, "iterations");
+        solutionTimes.writeText(writer, "solution_time_ns");
+        solutionIterations.writeText(writer, "solution_iterations");
+
+        writer.write("\nbest_cost trials\n");
+        for (Map.Entry<Integer, Long> entry : bestCosts.entrySet()) {
+            writer.write(String.format(Locale.ROOT, "%d %d\n", entry.getKey(), entry.getValue()));
+        }
+
+        writer.write("\ntemperature_index temperature trials iterations accepted acceptance_ratio\n");
+        for (int i = 0; i < temperatureSums.length; i++) {
+            writer.write(String.format(Locale.ROOT, "%d %.6g %d %d %d %.4f\n",
+                    i, temperatureSums[i] / temperatureTrials[i], temperatureTrials[i], temperatureIterations[i],
+                    temperatureAccepted[i],
+                    temperatureIterations[i] == 0 ? 0.0 : (double) temperatureAccepted[i] / temperatureIterations[i]));
+        }
+    }
+
+    /**
+     * Counts of non negative values in buckets of logarithmic width, eight per power of two, so any percentile is
+     * known within an eighth of its value whatever the amount of values recorded. Values under 16 are exact.
+     */
+    static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long sum;
+        private long maximum;
+
+        void record(long value) {
+            counts[bucket(value)]++;
+            count++;
+            sum += value;
+            maximum = Math.max(maximum, value);
+        }
+
+        private static int bucket(long value) {
+            if (value < 2 * SUB_BUCKETS) return (int) value;
+
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * @return the greatest value falling into {@code bucket}
+         */
+        private static long highestValue(int bucket) {
+            if (bucket < 2 * SUB_BUCKETS) return bucket;
+
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+            return lowest + (1L << shift) - 1;
+        }
+
+        /**
+         * @return the value under which a fraction {@code quantile} of the recorded values fall, or {@code 0} if none
+         * was recorded
+         */
+        long percentile(double quantile) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) return Math.min(highestValue(bucket), maximum);
+            }
+
+            return 0;
+        }
+
+        private void writeText(Writer writer, String metric) throws IOException {
+            writer.write(String.format(Locale.ROOT, "%s %.1f %d %d %d %d\n",
+                    metric, count == 0 ? 0.0 : (double) sum / count,
+                    percentile(0.5), percentile(0.9), percentile(0.99), maximum));
+        }
+
+        /**
+         * Writes the counts of non empty buckets only, which are few.
+         */
+        private void write(DataOutput output) throws IOException {
+            output.writeLong(count);
+            output.writeLong(sum);
+            output.writeLong(maximum);
+
+            int buckets = 0;
+            for (long bucketCount : counts) if (bucketCount != 0) buckets++;
+
+            output.writeInt(buckets);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (counts[bucket] == 0) continue;
+
+                output.writeShort(bucket);
+                output.writeLong(counts[bucket]);
+            }
+        }
+
+        private void read(DataInput input) throws IOException {
+            count = input.readLong();
+            sum = input.readLong();
+            maximum = input.readLong();
+
+            int buckets = input.readInt();
+            for (int i = 0; i < buckets; i++) counts[input.readShort()] = input.readLong();
+        }
+    }
+
+}
@@ -1,24 +1,84 @@
 import com.sun.istack.internal.NotNull;
+import sudoku.BulkPuzzleSource;
+import sudoku.ExactSolver;
 import sudoku.Sudoku;
+import sudoku.Sudoku.FileConfig;
 import sudoku.Sudoku.NeighborStrategy;
 import sudoku.Sudoku.ValueSeparatorFileConfig;
+import sudoku.SudokuSolver;
+import sudoku.ZipDataset;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FilenameFilter;
-import java.io.IOException;
+import java.io.*;
 import java.nio.file.*;
-import java.util.LinkedList;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class SimulatedAnnealing {
 
     private static final String USER_DIRECTORY_PATH = System.getProperty("user.dir");
 
-    private static final double INITIAL_TEMPERATURE = 1000.0;
-    private static final double COOLING_RATE = 0.9;
-    private static final double BEST_MINIMUM_TEMPERATURE = 0.01;
-    private static final NeighborStrategy BEST_NEIGHBOR_STRATEGY = NeighborStrategy.RANDOM_SWAP_SQUARE;
+    static final double INITIAL_TEMPERATURE = 1000.0;
+    static final double COOLING_RATE = 0.9;
+    static final double BEST_MINIMUM_TEMPERATURE = 0.01;
+    static final NeighborStrategy BEST_NEIGHBOR_STRATEGY = NeighborStrategy.RANDOM_SWAP_SQUARE;
+
+    /**
+     * Amount of instances solved concurrently by the trial runners, configurable through the
+     * {@code sudoku.parallelism} system property.
+     */
+    static final int DEFAULT_PARALLELISM =
+            Integer.getInteger("sudoku.parallelism", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Moves sampled per iteration, of which the one with the lowest delta is proposed, configurable through the
+     * {@code sudoku.neighbor.samples} system property.
+     */
+    private static final int NEIGHBOR_SAMPLES = Integer.getInteger("sudoku.neighbor.samples", 1);
+
+    /**
+     * Sweeps over the cells bounding the iterations at every temperature, configurable through the
+     * {@code sudoku.equilibrium.sweeps} system property. The default leaves boards of up to 5x5 squares at
+     * {@code squareSize^6} iterations, while keeping bigger ones from growing a further {@code squareSize^2} times.
+     */
+    private static final long MAXIMUM_EQUILIBRIUM_SWEEPS = Long.getLong("sudoku.equilibrium.sweeps", 25);
+
+    private static final CoolingSchedule.Type COOLING_SCHEDULE = CoolingSchedule.Type.fromSystemProperties();
+
+    private static final StagnationPolicy STAGNATION_POLICY = StagnationPolicy.fromSystemProperties();
+
+    private static final SimulatedAnnealingReport.Sampling REPORT_SAMPLING =
+            SimulatedAnnealingReport.Sampling.fromSystemProperties();
+
+    private static final TraceFormat REPORT_FORMAT = TraceFormat.fromSystemProperties();
+
+    private static final Engine ENGINE = Engine.fromSystemProperties();
+
+    /**
+     * Whether annealing starts from {@link Sudoku#propagateConstraints()} instead of the raw instance, which fixes every
+     * position forced by the givens. Enabled through the {@code sudoku.propagate} system property.
+     */
+    private static final boolean PROPAGATE_CONSTRAINTS = Boolean.getBoolean("sudoku.propagate");
+
+    /**
+     * Seed from which the seed of every trial is drawn, configurable through the {@code sudoku.seed} system property.
+     * Running the same trials with the same seed reproduces every run, whatever the parallelism.
+     */
+    private static final long SEED = Long.getLong("sudoku.seed", System.nanoTime());
+
+    /**
+     * Time between the checkpoints of a running trial, from which it resumes if the run is interrupted, configurable in
+     * seconds through the {@code sudoku.checkpoint.interval} system property. Checkpoints are disabled if it is not
+     * positive.
+     */
+    private static final long CHECKPOINT_INTERVAL_NANOS =
+            TimeUnit.SECONDS.toNanos(Long.getLong("sudoku.checkpoint.interval", 300));
 
     public static void main(String[] args) {
         runPerDifficultyTests();
@@ -50,37 +110,34 @@ public class SimulatedAnnealing {
                                        double initialTemperature,
                                        double minimumTemperature,
                                        double coolingRate) {
+        runKaggleTrials(strategy, initialTemperature, minimumTemperature, coolingRate, DEFAULT_PARALLELISM);
+    }
+
+    public static void runKaggleTrials(@NotNull NeighborStrategy strategy,
+                                       double initialTemperature,
+                                       double minimumTemperature,
+                                       double coolingRate,
+                                       int parallelism) {
+        kaggleExperiment(strategy, initialTemperature, minimumTemperature, coolingRate).run(parallelism);
+    }
+
+    static Experiment kaggleExperiment(@NotNull NeighborStrategy strategy,
+                                       double initialTemperature,
+                                       double minimumTemperature,
+                                       double coolingRate) {
         int squareSize = 3;
-        Path datasetDirectoryPath = Paths.get(USER_DIRECTORY_PATH, "datasets", "kaggle");
 
         String resultsFileName = String.format("r_%d_%s_%.0f_%.2f_%.2f.txt",
                 squareSize, strategy.shorthand(), initialTemperature, minimumTemperature, coolingRate);
-        Path resultsFilePath = Paths.get(USER_DIRECTORY_PATH, "results", "kaggle", resultsFileName);
 
-        boolean writeHeader = true;
-        try (BufferedWriter output = Files.newBufferedWriter(resultsFilePath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-            FilenameFilter filenameFilter = (dir, name) -> name.matches(String.format("s_%d.*\\.txt", squareSize));
-
-            for (File file : Objects.requireNonNull(datasetDirectoryPath.toFile().listFiles(filenameFilter))) {
+        return new Experiment(Paths.get(USER_DIRECTORY_PATH, "results", "kaggle", resultsFileName),
+                Paths.get(USER_DIRECTORY_PATH, "datasets", "kaggle"), "sudokus_kaggle.zip",
+                String.format("s_%d.*\\.txt", squareSize),
                 /*
                  * Format is ["s", Square Size, Instance Number]
                  */
-                String[] nameSplit = file.getName().replaceAll(".txt", "").split("_");
-                String instanceNumber = nameSplit[2];
-
-                SimulatedAnnealingReport report = runSimulatedAnnealing(
-                        Sudoku.of(new ValueSeparatorFileConfig(file.toPath(), ' ')),
-                        strategy,
-                        initialTemperature,
-                        minimumTemperature,
-                        coolingRate);
-
-                report.dump(output, String.valueOf(instanceNumber), writeHeader);
-                writeHeader = false;
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+                nameSplit -> nameSplit[2],
+                squareSize, strategy, initialTemperature, minimumTemperature, coolingRate);
     }
 
     public static void runPerDifficultyTrials(int squareSize,
@@ -89,37 +146,40 @@ public class SimulatedAnnealing {
                                               double minimumTemperature,
                                               double coolingRate,
                                               @NotNull Difficulty difficulty) {
+        runPerDifficultyTrials(squareSize, strategy, initialTemperature, minimumTemperature, coolingRate, difficulty,
+                DEFAULT_PARALLELISM);
+    }
+
+    public static void runPerDifficultyTrials(int squareSize,
+                                              @NotNull NeighborStrategy strategy,
+                                              double initialTemperature,
+                                              double minimumTemperature,
+                                              double coolingRate,
+                                              @NotNull Difficulty difficulty,
+                                              int parallelism) {
+        perDifficultyExperiment(squareSize, strategy, initialTemperature, minimumTemperature, coolingRate, difficulty)
+                .run(parallelism);
+    }
+
+    static Experiment perDifficultyExperiment(int squareSize,
+                                              @NotNull NeighborStrategy strategy,
+                                              double initialTemperature,
+                                              double minimumTemperature,
+                                              double coolingRate,
+                                              @NotNull Difficulty difficulty) {
         String difficultyName = difficulty.name().toLowerCase();
-        Path datasetDirectoryPath = Paths.get(USER_DIRECTORY_PATH, "datasets", "difficulty");
 
         String resultsFileName = String.format("r_%d_%s_%s_%.0f_%.2f_%.2f.txt",
                 squareSize, difficultyName, strategy.shorthand(), initialTemperature, minimumTemperature, coolingRate);
-        Path resultsFilePath = Paths.get(USER_DIRECTORY_PATH, "results", "difficulty", resultsFileName);
-
-        boolean writeHeader = true;
-        try (BufferedWriter output = Files.newBufferedWriter(resultsFilePath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-            FilenameFilter filenameFilter = (dir, name) -> name.matches(String.format("s_%d_%s.*\\.txt", squareSize, difficultyName));
 
-            for (File file : Objects.requireNonNull(datasetDirectoryPath.toFile().listFiles(filenameFilter))) {
+        return new Experiment(Paths.get(USER_DIRECTORY_PATH, "results", "difficulty", resultsFileName),
+                Paths.get(USER_DIRECTORY_PATH, "datasets", "difficulty"), "sudokus_per_difficulty.zip",
+                String.format("s_%d_%s.*\\.txt", squareSize, difficultyName),
                 /*
                  * Format is ["s", Square Size, Difficulty, Instance Number]
                  */
-                String[] nameSplit = file.getName().replaceAll(".txt", "").split("_");
-                String instanceNumber = nameSplit[3];
-
-                SimulatedAnnealingReport report = runSimulatedAnnealing(
-                        Sudoku.of(new ValueSeparatorFileConfig(file.toPath(), ' ')),
-                        strategy,
-                        initialTemperature,
-                        minimumTemperature,
-                        coolingRate);
-
-                report.dump(output, String.valueOf(instanceNumber), writeHeader);
-                writeHeader = false;
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+                nameSplit -> nameSplit[3],
+                squareSize, strategy, initialTemperature, minimumTemperature, coolingRate);
     }
 
     public static void runParametersFixationTrials(int squareSize,
@@ -127,77 +187,770 @@ public class SimulatedAnnealing {
                                                    double initialTemperature,
                                                    double minimumTemperature,
                                                    double coolingRate) {
-        Path datasetDirectoryPath = Paths.get(USER_DIRECTORY_PATH, "datasets", "params_fixation");
+        runParametersFixationTrials(squareSize, strategy, initialTemperature, minimumTemperature, coolingRate,
+                DEFAULT_PARALLELISM);
+    }
 
+    public static void runParametersFixationTrials(int squareSize,
+                                                   @NotNull NeighborStrategy strategy,
+                                                   double initialTemperature,
+                                                   double minimumTemperature,
+                                                   double coolingRate,
+                                                   int parallelism) {
+        parametersFixationExperiment(squareSize, strategy, initialTemperature, minimumTemperature, coolingRate)
+                .run(parallelism);
+    }
+
+    static Experiment parametersFixationExperiment(int squareSize,
+                                                   @NotNull NeighborStrategy strategy,
+                                                   double initialTemperature,
+                                                   double minimumTemperature,
+                                                   double coolingRate) {
         String resultsFileName = String.format("r_%d_%s_%.0f_%.2f_%.2f.txt",
                 squareSize, strategy.shorthand(), initialTemperature, minimumTemperature, coolingRate);
-        Path resultsFilePath = Paths.get(USER_DIRECTORY_PATH, "results", "params_fixation", resultsFileName);
-
-        boolean writeHeader = true;
-        try (BufferedWriter output = Files.newBufferedWriter(resultsFilePath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-            FilenameFilter filenameFilter = (dir, name) -> name.matches(String.format("s_%d_.*\\.txt", squareSize));
 
-            for (File file : Objects.requireNonNull(datasetDirectoryPath.toFile().listFiles(filenameFilter))) {
+        return new Experiment(Paths.get(USER_DIRECTORY_PATH, "results", "params_fixation", resultsFileName),
+                Paths.get(USER_DIRECTORY_PATH, "datasets", "params_fixation"), "sudokus_params_fixation.zip",
+                String.format("s_%d_.*\\.txt", squareSize),
                 /*
                  * Format is ["s", Square Size, Fixed Quantity, Instance Number]
                  */
-                String[] nameSplit = file.getName().replaceAll(".txt", "").split("_");
-                String instanceNumber = nameSplit[3];
-
-                SimulatedAnnealingReport report = runSimulatedAnnealing(
-                        Sudoku.of(new ValueSeparatorFileConfig(file.toPath(), ' ')),
-                        strategy,
-                        initialTemperature,
-                        minimumTemperature,
-                        coolingRate);
-
-                report.dump(output, String.valueOf(instanceNumber), writeHeader);
-                writeHeader = false;
+                nameSplit -> nameSplit[3],
+                squareSize, strategy, initialTemperature, minimumTemperature, coolingRate);
+    }
+
+    /**
+     * Trials of the instances of a dataset whose file name matches a pattern, all solved with the same parameters into
+     * a single results file.
+     */
+    static final class Experiment {
+        final Path resultsFilePath;
+        private final Path datasetDirectoryPath;
+        private final String zipFileName;
+        private final String fileNamePattern;
+        private final Function<String[], String> instanceId;
+
+        private final int squareSize;
+        private final NeighborStrategy strategy;
+        private final double initialTemperature;
+        private final double minimumTemperature;
+        private final double coolingRate;
+
+        /**
+         * @param instanceId extracts the instance id from the file name split by {@code '_'}
+         */
+        private Experiment(@NotNull Path resultsFilePath,
+                           @NotNull Path datasetDirectoryPath,
+                           @NotNull String zipFileName,
+                           @NotNull String fileNamePattern,
+                           @NotNull Function<String[], String> instanceId,
+                           int squareSize,
+                           @NotNull NeighborStrategy strategy,
+                           double initialTemperature,
+                           double minimumTemperature,
+                           double coolingRate) {
+            this.resultsFilePath = resultsFilePath;
+            this.datasetDirectoryPath = datasetDirectoryPath;
+            this.zipFileName = zipFileName;
+            this.fileNamePattern = fileNamePattern;
+            this.instanceId = instanceId;
+            this.squareSize = squareSize;
+            this.strategy = strategy;
+            this.initialTemperature = initialTemperature;
+            this.minimumTemperature = minimumTemperature;
+            this.coolingRate = coolingRate;
+        }
+
+        void run(int parallelism) {
+            runTrials(resultsFilePath, datasetTrials(datasetInstances(datasetDirectoryPath, zipFileName, fileNamePattern), instanceId),
+                    trialSolver(strategy, initialTemperature, minimumTemperature, coolingRate),
+                    parallelism);
+        }
+
+        /**
+         * Solves the trials on {@code executor}, which may be shared with other experiments, keeping up to
+         * {@code parallelism} of its threads busy.
+         */
+        void run(@NotNull ExecutorService executor, int parallelism) {
+            runTrials(resultsFilePath, datasetTrials(datasetInstances(datasetDirectoryPath, zipFileName, fileNamePattern), instanceId),
+                    trialSolver(strategy, initialTemperature, minimumTemperature, coolingRate),
+                    executor, parallelism);
+        }
+
+        /**
+         * @return the amount of instances whose trials were not completed by a previous run
+         */
+        int remainingTrials() {
+            Set<String> completedIds = TrialProgress.completedIds(seedsPath(resolveResultsFilePath(resultsFilePath)));
+
+            int remaining = 0;
+            for (FileConfig instance : datasetInstances(datasetDirectoryPath, zipFileName, fileNamePattern)) {
+                if (!completedIds.contains(instanceId.apply(instance.getFileName().replaceAll(".txt", "").split("_")))) {
+                    remaining++;
+                }
+            }
+
+            return remaining;
+        }
+
+        /**
+         * @return the iterations {@code trials} trials would take if every one of them went through every temperature
+         * of the geometric schedule without solving its instance. Solved instances and early equilibria take far
+         * fewer, so this is only meant for comparing experiments with each other.
+         */
+        double expectedIterations(int trials) {
+            double temperatures = Math.ceil(Math.log(minimumTemperature / initialTemperature) / Math.log(1.0 - coolingRate));
+            return trials * Math.max(temperatures, 1.0) * equilibriumIterations(squareSize);
+        }
+    }
+
+    /**
+     * Solves every puzzle in a file holding one per line, as read by {@link BulkPuzzleSource}, and appends their
+     * reports to a results file named after it in {@code results/bulk}. Puzzles are parsed as the runner consumes them,
+     * so files far bigger than the available memory can be solved. Instance ids are line numbers among the puzzle
+     * lines, starting at {@code 1}.
+     *
+     * @param separator between the values of a line, or {@code 0} for lines with one digit per cell
+     */
+    public static void runBulkTrials(@NotNull Path puzzlesFilePath,
+                                     int squareSize,
+                                     char separator,
+                                     @NotNull NeighborStrategy strategy,
+                                     double initialTemperature,
+                                     double minimumTemperature,
+                                     double coolingRate,
+                                     int parallelism) {
+        String puzzlesFileName = puzzlesFilePath.getFileName().toString().replaceAll("\\.[^.]*$", "");
+        String resultsFileName = String.format("r_%s_%d_%s_%.0f_%.2f_%.2f.txt",
+                puzzlesFileName, squareSize, strategy.shorthand(), initialTemperature, minimumTemperature, coolingRate);
+        Path resultsFilePath = Paths.get(USER_DIRECTORY_PATH, "results", "bulk", resultsFileName);
+
+        try (BulkPuzzleSource source = separator == 0
+                ? BulkPuzzleSource.digits(puzzlesFilePath, squareSize)
+                : BulkPuzzleSource.separated(puzzlesFilePath, squareSize, separator)) {
+            Iterator<Sudoku> puzzles = source.stream().iterator();
+
+            runTrials(resultsFilePath,
+                    new Iterator<Trial>() {
+                        private long id;
+
+                        @Override
+                        public boolean hasNext() {
+                            return puzzles.hasNext();
+                        }
+
+                        @Override
+                        public Trial next() {
+                            Sudoku instance = puzzles.next();
+                            return new Trial(String.valueOf(++id), () -> instance);
+                        }
+                    },
+                    trialSolver(strategy, initialTemperature, minimumTemperature, coolingRate),
+                    parallelism);
+        }
+    }
+
+    /**
+     * An instance to solve, identified in reports by {@link #id}.
+     */
+    private static final class Trial {
+        final String id;
+
+        /**
+         * Builds the instance on the thread that solves it.
+         */
+        final Supplier<Sudoku> instance;
+
+        private Trial(@NotNull String id, @NotNull Supplier<Sudoku> instance) {
+            this.id = id;
+            this.instance = instance;
+        }
+    }
+
+    /**
+     * @param instanceId extracts the instance id from the file name split by {@code '_'}
+     *
+     * @return a trial for every instance, in file name order
+     */
+    private static Iterator<Trial> datasetTrials(@NotNull List<FileConfig> instances,
+                                                 @NotNull Function<String[], String> instanceId) {
+        instances.sort(Comparator.comparing(FileConfig::getFileName));
+
+        List<Trial> trials = new ArrayList<>(instances.size());
+        for (FileConfig instance : instances) {
+            trials.add(new Trial(instanceId.apply(instance.getFileName().replaceAll(".txt", "").split("_")),
+                    () -> Sudoku.of(instance)));
+        }
+
+        return trials.iterator();
+    }
+
+    /**
+     * Solves every trial in {@code trials} and appends their reports to {@code resultsFilePath}, or to its sibling with
+     * the extension of the configured {@link TraceFormat}.
+     *
+     * Reports are written in trial order, with the header preceding the first one. Every trial gets its own random
+     * source, seeded from {@link #SEED} in that same order and recorded as an {@code id seed} line in the sibling
+     * {@code _seeds.txt} file, so slow or failing runs can be replayed. With a single thread every report streams
+     * straight into the results file. Otherwise trials are solved on up to {@code parallelism} threads, each into its
+     * own in-memory buffer that the calling thread copies to the results file in order. At most
+     * {@code 2 * parallelism} trials are taken from {@code trials} ahead of the one being written, so finished buffers
+     * waiting for a slower predecessor stay bounded, as do the instances of lazily read trials.
+     *
+     * Running the same trials into the same results file again picks up where the last run stopped, as recorded by
+     * {@link TrialProgress}. Completed trials are skipped, still drawing their seeds so the remaining ones keep theirs,
+     * and interrupted ones resume from their last checkpoint, taken every {@link #CHECKPOINT_INTERVAL_NANOS}.
+     *
+     * Whatever the sampling, every iteration goes into the {@link ResultsSummary} of the completed trials, written to
+     * the sibling {@code _summary.txt} file, so reports reading only that can run with {@link SimulatedAnnealingReport.Sampling.Mode#NONE}.
+     *
+     * @param solver solves a single instance, recording its iterations in the given report
+     */
+    private static void runTrials(@NotNull Path resultsFilePath,
+                                  @NotNull Iterator<Trial> trials,
+                                  @NotNull TrialSolver solver,
+                                  int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism cannot be < 1");
+
+        if (parallelism == 1) {
+            runTrials(resultsFilePath, trials, solver, null, 1);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            runTrials(resultsFilePath, trials, solver, executor, parallelism);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Same as {@link #runTrials(Path, Iterator, TrialSolver, int)}, solving trials on {@code executor}, which may be
+     * shared by several runners.
+     *
+     * @param executor    solving the trials, or {@code null} to solve them one at a time on the calling thread
+     * @param parallelism threads of {@code executor} this runner keeps busy, submitting up to twice as many trials
+     */
+    private static void runTrials(@NotNull Path resultsFilePath,
+                                  @NotNull Iterator<Trial> trials,
+                                  @NotNull TrialSolver solver,
+                                  ExecutorService executor,
+                                  int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism cannot be < 1");
+
+        Path resolvedResultsFilePath = resolveResultsFilePath(resultsFilePath);
+        Path outputPath = REPORT_FORMAT.resolve(resolvedResultsFilePath);
+        Path seedsPath = seedsPath(resolvedResultsFilePath);
+
+        SplittableRandom seeds = new SplittableRandom(SEED);
+
+        AnnealingMetrics.INSTANCE.start();
+        try (TrialProgress progress = TrialProgress.open(outputPath, seedsPath, REPORT_FORMAT)) {
+            if (executor == null) {
+                while (trials.hasNext()) {
+                    Trial trial = trials.next();
+                    long seed = seeds.nextLong();
+                    if (progress.isCompleted(trial.id)) continue;
+
+                    TrialProgress.Checkpoint checkpoint = progress.checkpoint(trial.id);
+                    long trialSeed = checkpoint == null ? seed : checkpoint.seed;
+
+                    AnnealingMetrics.INSTANCE.trialQueued();
+                    progress.complete(trial.id, trialSeed, solveTrial(trial, trialSeed, checkpoint, solver, progress, null));
+                }
+                return;
             }
-        } catch (IOException e) {
+
+            Deque<Trial> pendingTrials = new ArrayDeque<>();
+            Deque<Long> pendingSeeds = new ArrayDeque<>();
+            Deque<ByteArrayOutputStream> pendingBuffers = new ArrayDeque<>();
+            Deque<Future<SimulatedAnnealingReport.Summary>> pending = new ArrayDeque<>();
+            // Claimed by a trial when it starts, or by this runner when it cancels the trial before that
+            Deque<AtomicBoolean> pendingClaims = new ArrayDeque<>();
+
+            try {
+                while (trials.hasNext() || !pending.isEmpty()) {
+                    while (trials.hasNext() && pending.size() < 2 * parallelism) {
+                        Trial trial = trials.next();
+                        long seed = seeds.nextLong();
+                        if (progress.isCompleted(trial.id)) continue;
+
+                        TrialProgress.Checkpoint checkpoint = progress.checkpoint(trial.id);
+                        long trialSeed = checkpoint == null ? seed : checkpoint.seed;
+
+                        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                        AtomicBoolean claim = new AtomicBoolean();
+                        pendingTrials.add(trial);
+                        pendingSeeds.add(trialSeed);
+                        pendingBuffers.add(buffer);
+                        pendingClaims.add(claim);
+                        AnnealingMetrics.INSTANCE.trialQueued();
+                        pending.add(executor.submit(() -> claim.compareAndSet(false, true)
+                                ? solveTrial(trial, trialSeed, checkpoint, solver, progress, buffer)
+                                : null));
+                    }
+
+                    // Every trial left was already completed
+                    if (pending.isEmpty()) break;
+
+                    SimulatedAnnealingReport.Summary summary = pending.peek().get();
+                    pending.remove();
+                    pendingClaims.remove();
+                    pendingBuffers.remove().writeTo(progress.output());
+                    progress.complete(pendingTrials.remove().id, pendingSeeds.remove(), summary);
+                }
+            } finally {
+                // Left only on failure, when the executor may still serve other runners
+                Iterator<AtomicBoolean> claims = pendingClaims.iterator();
+                for (Future<SimulatedAnnealingReport.Summary> future : pending) {
+                    future.cancel(true);
+                    if (claims.next().compareAndSet(false, true)) AnnealingMetrics.INSTANCE.trialWithdrawn();
+                }
+            }
+        } catch (IOException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } finally {
+            AnnealingMetrics.INSTANCE.stop();
+        }
+    }
+
+    /**
+     * @return {@code resultsFilePath} renamed after the configured engine or cooling schedule, so results of different
+     * ones never mix
+     */
+    private static Path resolveResultsFilePath(@NotNull Path resultsFilePath) {
+        return ENGINE == Engine.ANNEALING ? COOLING_SCHEDULE.resolve(resultsFilePath) : ENGINE.resolve(resultsFilePath);
+    }
+
+    private static Path seedsPath(@NotNull Path resolvedResultsFilePath) {
+        return resolvedResultsFilePath.resolveSibling(
+                resolvedResultsFilePath.getFileName().toString().replaceAll("\\.txt$", "_seeds.txt"));
+    }
+
+    /**
+     * @param checkpoint from which the trial resumes, or {@code null} to start it over
+     * @param buffer     receiving the report until the trial completes, or {@code null} to stream it straight into the
+     *                   results file
+     *
+     * @return the summary of the run
+     */
+    private static SimulatedAnnealingReport.Summary solveTrial(@NotNull Trial trial,
+                                   long seed,
+                                   TrialProgress.Checkpoint checkpoint,
+                                   @NotNull TrialSolver solver,
+                                   @NotNull TrialProgress progress,
+                                   ByteArrayOutputStream buffer) throws IOException {
+        AnnealingMetrics.INSTANCE.trialStarted();
+        boolean completed = false;
+
+        try {
+            OutputStream output = buffer == null ? progress.output() : buffer;
+            if (checkpoint != null) output.write(checkpoint.output);
+
+            TraceSink sink = REPORT_FORMAT.newSink(output, trial.id);
+            SimulatedAnnealingReport report = new SimulatedAnnealingReport(sink, REPORT_SAMPLING);
+
+            solver.solve(trial.instance.get(), new SplittableRandom(seed), report,
+                    checkpoint == null ? null : checkpoint.annealing,
+                    new TrialSaver(progress, trial.id, seed, report, buffer));
+            report.finish();
+
+            SimulatedAnnealingReport.Summary summary = report.summary();
+            AnnealingMetrics.INSTANCE.trialCompleted(summary);
+            completed = true;
+
+            return summary;
+        } finally {
+            if (!completed) AnnealingMetrics.INSTANCE.trialFailed();
+        }
+    }
+
+    /**
+     * Saves the checkpoints of a trial into its {@link TrialProgress}, once every {@link #CHECKPOINT_INTERVAL_NANOS}.
+     */
+    private static final class TrialSaver implements AnnealingCheckpoint.Saver {
+        private final TrialProgress progress;
+        private final String id;
+        private final long seed;
+        private final SimulatedAnnealingReport report;
+
+        /**
+         * Receives the report until the trial completes, or {@code null} if it streams into the results file.
+         */
+        private final ByteArrayOutputStream buffer;
+
+        private long lastSaveTime = System.nanoTime();
+
+        private TrialSaver(@NotNull TrialProgress progress,
+                           @NotNull String id,
+                           long seed,
+                           @NotNull SimulatedAnnealingReport report,
+                           ByteArrayOutputStream buffer) {
+            this.progress = progress;
+            this.id = id;
+            this.seed = seed;
+            this.report = report;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean isDue() {
+            return CHECKPOINT_INTERVAL_NANOS > 0 && System.nanoTime() - lastSaveTime >= CHECKPOINT_INTERVAL_NANOS;
+        }
+
+        @Override
+        public void save(@NotNull AnnealingCheckpoint checkpoint) {
+            report.flush();
+
+            try {
+                progress.saveCheckpoint(id, buffer == null
+                        ? new TrialProgress.Checkpoint(seed, progress.flushOutput(), new byte[0], checkpoint)
+                        : new TrialProgress.Checkpoint(seed, 0, buffer.toByteArray(), checkpoint));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            lastSaveTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return the instances of a dataset whose file name matches {@code fileNamePattern}. Files already extracted in
+     * {@code datasetDirectoryPath}, such as the ones {@link Sudoku#main} generates, take precedence. Otherwise they are
+     * read straight from the dataset's zip archive.
+     */
+    private static List<FileConfig> datasetInstances(@NotNull Path datasetDirectoryPath,
+                                                     @NotNull String zipFileName,
+                                                     @NotNull String fileNamePattern) {
+        File[] extractedFiles = datasetDirectoryPath.toFile().listFiles((dir, name) -> name.matches(fileNamePattern));
+        if (extractedFiles != null && extractedFiles.length > 0) {
+            List<FileConfig> instances = new ArrayList<>(extractedFiles.length);
+            for (File file : extractedFiles) instances.add(new ValueSeparatorFileConfig(file.toPath(), ' '));
+            return instances;
+        }
+
+        return new ArrayList<>(ZipDataset.read(datasetDirectoryPath.resolve(zipFileName), name -> name.matches(fileNamePattern)));
+    }
+
+    /**
+     * Solves a single trial instance.
+     */
+    private interface TrialSolver {
+        /**
+         * @param random source of every random decision of the run, seeded with the seed recorded for the instance
+         * @param report receives the iterations of the run
+         * @param resume checkpoint from which the run carries on, or {@code null} to start it over. Ignored by solvers
+         *               that run in a single step, as is {@code saver}.
+         * @param saver  receives the checkpoints of the run
+         */
+        void solve(@NotNull Sudoku instance,
+                   @NotNull SplittableRandom random,
+                   @NotNull SimulatedAnnealingReport report,
+                   AnnealingCheckpoint resume,
+                   @NotNull AnnealingCheckpoint.Saver saver);
+    }
+
+    /**
+     * @return the way the trial runners solve each instance, depending on the configured {@link Engine}. Annealing
+     * parameters are ignored by engines other than {@link Engine#ANNEALING}.
+     */
+    private static TrialSolver trialSolver(@NotNull NeighborStrategy strategy,
+                                           double initialTemperature,
+                                           double minimumTemperature,
+                                           double coolingRate) {
+        switch (ENGINE) {
+            case ANNEALING:
+                CoolingSchedule coolingSchedule = COOLING_SCHEDULE.create(initialTemperature, minimumTemperature, coolingRate);
+
+                return (instance, random, report, resume, saver) -> runSimulatedAnnealing(PROPAGATE_CONSTRAINTS ? instance.propagateConstraints() : instance,
+                        strategy, NEIGHBOR_SAMPLES, initialTemperature, minimumTemperature, coolingSchedule,
+                        Equilibrium.fromSystemProperties(equilibriumIterations(instance), cellCount(instance)),
+                        STAGNATION_POLICY, random, report, resume, saver, AnnealingBudget.UNLIMITED);
+            case EXACT:
+                return (instance, random, report, resume, saver) -> runSolver(new ExactSolver(random), instance, report);
+            default:
+                throw new IllegalStateException("Invalid Engine -> " + ENGINE);
         }
     }
 
+    /**
+     * Solves {@code instance} with a non iterative {@code solver}, whose single row in {@code report} holds the
+     * repetitions of its result and the time it took.
+     */
+    private static void runSolver(@NotNull SudokuSolver solver,
+                                  @NotNull Sudoku instance,
+                                  @NotNull SimulatedAnnealingReport report) {
+        Sudoku result = solver.solve(instance);
+
+        report.setBest(result);
+        report.appendIterationReport(result.repetitions(), result.repetitions(), 0.0, 1);
+    }
+
+    /**
+     * @return the maximum amount of iterations at every temperature, {@code squareSize^2} sweeps over the cells, that
+     * is {@code squareSize^6} iterations, up to {@link #MAXIMUM_EQUILIBRIUM_SWEEPS} sweeps
+     */
+    private static long equilibriumIterations(@NotNull Sudoku instance) {
+        return equilibriumIterations(instance.getSquareSize());
+    }
+
+    private static long equilibriumIterations(int squareSize) {
+        return (long) Math.pow(squareSize, 4) * Math.min((long) squareSize * squareSize, MAXIMUM_EQUILIBRIUM_SWEEPS);
+    }
+
+    private static long cellCount(@NotNull Sudoku instance) {
+        return (long) Math.pow(instance.getSquareSize(), 4);
+    }
+
     private static SimulatedAnnealingReport runSimulatedAnnealing(@NotNull Sudoku initial,
                                                                   @NotNull NeighborStrategy neighborStrategy,
-                                                                  double temperature,
+                                                                  int neighborSamples,
+                                                                  double initialTemperature,
                                                                   double minimumTemperature,
-                                                                  double coolingRate) {
-        SimulatedAnnealingReport report = new SimulatedAnnealingReport();
-        Sudoku current = initial;
-        current.populateNonFixed();
+                                                                  @NotNull CoolingSchedule coolingSchedule,
+                                                                  @NotNull Equilibrium equilibrium,
+                                                                  @NotNull StagnationPolicy stagnationPolicy,
+                                                                  @NotNull SplittableRandom random,
+                                                                  @NotNull SimulatedAnnealingReport report,
+                                                                  AnnealingCheckpoint resume,
+                                                                  @NotNull AnnealingCheckpoint.Saver saver,
+                                                                  @NotNull AnnealingBudget budget) {
+        Sudoku current;
+        int bestEnergy;
+        double temperature;
+        int attempt;
+        int attemptBestEnergy;
+        long iterationsWithoutImprovement;
+        long temperatureSeed;
+
+        if (resume == null) {
+            current = initial;
+            current.populateNonFixed(random);
+            bestEnergy = current.repetitions();
+            temperature = initialTemperature;
+            attempt = 1;
+            attemptBestEnergy = bestEnergy;
+            iterationsWithoutImprovement = 0;
+            temperatureSeed = random.nextLong();
+
+            report.setBest(current.snapshot());
+            report.appendIterationReport(bestEnergy, bestEnergy, temperature, attempt);
+        } else {
+            current = initial.withValues(resume.current);
+            Sudoku best = initial.withValues(resume.best);
+            bestEnergy = best.repetitions();
+            temperature = resume.temperature;
+            attempt = resume.attempt;
+            attemptBestEnergy = resume.attemptBestEnergy;
+            iterationsWithoutImprovement = resume.iterationsWithoutImprovement;
+            temperatureSeed = resume.temperatureSeed;
+
+            report.setBest(best);
+            report.restore(resume.report);
+        }
+
         int currentEnergy = current.repetitions();
-        int bestEnergy = currentEnergy;
-        long equilibriumIterationsAmount = (long) Math.pow(current.getSquareSize(), 6);
+        Sudoku.Move move = new Sudoku.Move();
+        long iterations = 0;
 
-        report.appendIterationReport(currentEnergy, bestEnergy, temperature);
-        while (temperature > minimumTemperature) {
-            for (long i = 0; i < equilibriumIterationsAmount; i++) {
-                Sudoku neighbor = current.neighbor(neighborStrategy);
-                int neighborEnergy = neighbor.repetitions();
+        annealing:
+        // Boards solved from the start, for instance by constraint propagation, have no move left to try
+        while (temperature > minimumTemperature && bestEnergy > 0) {
+            if (saver.isDue()) {
+                saver.save(new AnnealingCheckpoint(temperatureSeed, temperature, attempt, attemptBestEnergy,
+                        iterationsWithoutImprovement, current.values(), report.getBest().values(), report.state()));
+            }
 
-                if (shouldAcceptNeighbor(currentEnergy, neighborEnergy, temperature)) {
-                    current = neighbor;
+            // Every temperature draws from its own source, so a checkpoint only needs its seed to resume it
+            SplittableRandom temperatureRandom = new SplittableRandom(temperatureSeed);
+            equilibrium.reset();
+            boolean equilibriumReached = false;
+
+            while (!equilibriumReached) {
+                if (iterations == budget.maximumIterations
+                        || (iterations & (AnnealingBudget.POLL_ITERATIONS - 1)) == 0 && budget.isInterrupted()) {
+                    endTemperature(report, equilibrium, current, currentEnergy, temperature);
+                    break annealing;
+                }
+                iterations++;
+
+                current.propose(neighborStrategy, move, temperatureRandom, neighborSamples);
+                int neighborEnergy = currentEnergy + move.delta();
+
+                iterationsWithoutImprovement++;
+                boolean accepted = shouldAcceptNeighbor(currentEnergy, neighborEnergy, temperature, temperatureRandom);
+                if (accepted) {
+                    current.apply(move);
                     currentEnergy = neighborEnergy;
 
+                    if (currentEnergy < attemptBestEnergy) {
+                        attemptBestEnergy = currentEnergy;
+                        iterationsWithoutImprovement = 0;
+                    }
+
                     if (currentEnergy < bestEnergy) {
                         bestEnergy = currentEnergy;
+                        report.setBest(current.snapshot());
                     }
                 }
 
-                report.appendIterationReport(currentEnergy, bestEnergy, temperature);
+                report.appendIterationReport(currentEnergy, bestEnergy, temperature, attempt);
+                equilibriumReached = equilibrium.record(currentEnergy, accepted);
+
+                // A solved board cannot be improved any further
+                if (bestEnergy == 0) {
+                    endTemperature(report, equilibrium, current, currentEnergy, temperature);
+                    break annealing;
+                }
+
+                if (iterationsWithoutImprovement >= stagnationPolicy.iterations && stagnationPolicy.allowsAttempt(attempt + 1)) {
+                    endTemperature(report, equilibrium, current, currentEnergy, temperature);
+                    attempt++;
+                    temperature = initialTemperature;
+
+                    if (stagnationPolicy.action == StagnationAction.RESTART) {
+                        current.populateNonFixed(temperatureRandom);
+                        currentEnergy = current.repetitions();
+                    }
+
+                    attemptBestEnergy = currentEnergy;
+                    iterationsWithoutImprovement = 0;
+                    temperatureSeed = temperatureRandom.nextLong();
+                    continue annealing;
+                }
             }
 
             // Cool system
-            temperature *= 1.0 - coolingRate;
+            endTemperature(report, equilibrium, current, currentEnergy, temperature);
+            temperature = coolingSchedule.next(temperature, equilibrium);
+            temperatureSeed = temperatureRandom.nextLong();
         }
 
         return report;
     }
 
-    private static boolean shouldAcceptNeighbor(int currentEnergy, int neighborEnergy, double temperature) {
-        return acceptanceProbability(currentEnergy, neighborEnergy, temperature) > Math.random();
+    /**
+     * Closes the temperature that just ended in {@code report} and publishes it to the {@link AnnealingMetrics}.
+     */
+    private static void endTemperature(@NotNull SimulatedAnnealingReport report,
+                                       @NotNull Equilibrium equilibrium,
+                                       @NotNull Sudoku current,
+                                       int currentEnergy,
+                                       double temperature) {
+        report.endTemperature(equilibrium);
+        AnnealingMetrics.INSTANCE.recordTemperature(equilibrium.iterations(), equilibrium.accepted(),
+                current.takeRejectedProposals(), temperature, currentEnergy);
+    }
+
+    /**
+     * Anneals a copy of {@code instance} the way the trial runners do, with the configured cooling schedule,
+     * equilibrium, stagnation policy and constraint propagation, whatever the configured {@link Engine}, until its
+     * schedule ends or {@code budget} runs out.
+     *
+     * @return the best board found
+     */
+    static Sudoku anneal(@NotNull Sudoku instance,
+                         @NotNull NeighborStrategy neighborStrategy,
+                         double initialTemperature,
+                         double minimumTemperature,
+                         double coolingRate,
+                         @NotNull SplittableRandom random,
+                         @NotNull AnnealingBudget budget) {
+        return new Annealer(neighborStrategy, initialTemperature, minimumTemperature, coolingRate,
+                instance.getSquareSize(), random).anneal(instance, budget).getBest();
+    }
+
+    /**
+     * Anneals instances of a single square size one after the other, as
+     * {@link #anneal(Sudoku, NeighborStrategy, double, double, double, SplittableRandom, AnnealingBudget)} does, sharing
+     * the cooling schedule, equilibrium and random source of the runs. Meant for batches of small instances, whose runs
+     * take little more than setting them up. Not thread safe.
+     */
+    static final class Annealer {
+        private final NeighborStrategy neighborStrategy;
+        private final double initialTemperature;
+        private final double minimumTemperature;
+        private final int squareSize;
+        private final CoolingSchedule coolingSchedule;
+        private final Equilibrium equilibrium;
+        private final SplittableRandom random;
+
+        /**
+         * @param random source of every random decision of the runs, drawn from in turn
+         */
+        Annealer(@NotNull NeighborStrategy neighborStrategy,
+                 double initialTemperature,
+                 double minimumTemperature,
+                 double coolingRate,
+                 int squareSize,
+                 @NotNull SplittableRandom random) {
+            this.neighborStrategy = neighborStrategy;
+            this.initialTemperature = initialTemperature;
+            this.minimumTemperature = minimumTemperature;
+            this.squareSize = squareSize;
+            this.coolingSchedule = COOLING_SCHEDULE.create(initialTemperature, minimumTemperature, coolingRate);
+            // Reset at every temperature, so runs can share it
+            this.equilibrium = Equilibrium.fromSystemProperties(equilibriumIterations(squareSize),
+                    (long) Math.pow(squareSize, 4));
+            this.random = random;
+        }
+
+        /**
+         * Anneals a copy of {@code instance} until its schedule ends or {@code budget} runs out.
+         *
+         * @return the report of the run, holding its best board and summary. Times count from the start of the run.
+         */
+        SimulatedAnnealingReport anneal(@NotNull Sudoku instance, @NotNull AnnealingBudget budget) {
+            if (instance.getSquareSize() != squareSize) {
+                throw new IllegalArgumentException("instance square size must be " + squareSize);
+            }
+
+            SimulatedAnnealingReport report = new SimulatedAnnealingReport(TraceSink.DISCARDING,
+                    SimulatedAnnealingReport.Sampling.none());
+            Sudoku initial = (PROPAGATE_CONSTRAINTS ? instance.propagateConstraints() : instance).snapshot();
+
+            runSimulatedAnnealing(initial, neighborStrategy, NEIGHBOR_SAMPLES, initialTemperature, minimumTemperature,
+                    coolingSchedule, equilibrium, STAGNATION_POLICY, random, report, null,
+                    AnnealingCheckpoint.Saver.NEVER, budget);
+
+            return report;
+        }
+    }
+
+    /**
+     * Anneals a copy of {@code initial} without stagnation handling, recording every iteration into a report whose rows
+     * are discarded. Meant for the benchmarks, which cannot reach this class directly since it lives in the default
+     * package.
+     *
+     * @return the amount of iterations performed
+     */
+    static long runDiscardingReport(@NotNull Sudoku initial,
+                                    @NotNull NeighborStrategy neighborStrategy,
+                                    double initialTemperature,
+                                    double minimumTemperature,
+                                    double coolingRate,
+                                    long seed) {
+        SimulatedAnnealingReport report = new SimulatedAnnealingReport(TraceSink.DISCARDING,
+                SimulatedAnnealingReport.Sampling.all());
+
+        runSimulatedAnnealing(initial.snapshot(), neighborStrategy, 1, initialTemperature, minimumTemperature,
+                CoolingSchedule.geometric(coolingRate), new Equilibrium(equilibriumIterations(initial), 1, -1),
+                new StagnationPolicy(StagnationAction.NONE, 1, 1), new SplittableRandom(seed), report,
+                null, AnnealingCheckpoint.Saver.NEVER, AnnealingBudget.UNLIMITED);
+        report.finish();
+
+        return report.iterations();
+    }
+
+    private static boolean shouldAcceptNeighbor(int currentEnergy,
+                                                int neighborEnergy,
+                                                double temperature,
+                                                SplittableRandom random) {
+        return acceptanceProbability(currentEnergy, neighborEnergy, temperature) > random.nextDouble();
     }
 
     private static double acceptanceProbability(int currentEnergy, int neighborEnergy, double temperature) {
@@ -209,59 +962,90 @@ public class SimulatedAnnealing {
         return Math.exp((currentEnergy - neighborEnergy) / temperature);
     }
 
-    private enum Difficulty {
+    enum Difficulty {
         MEDIUM, HARD, GENIUS
     }
-    
-}
-
-// TODO: Comment
-final class SimulatedAnnealingReport {
 
-    private final LinkedList<ReportNode> iterationReports = new LinkedList<>();
-    private final long initialTime = System.currentTimeMillis();
+    /**
+     * Ways the trial runners can solve instances.
+     */
+    enum Engine {
+        /**
+         * {@link #runSimulatedAnnealing}, recording every sampled iteration.
+         */
+        ANNEALING,
+        /**
+         * {@link ExactSolver}, recording a single row per instance. Results go to a file whose name ends in
+         * {@code _exact} so they never mix with annealing ones.
+         */
+        EXACT;
 
-    void appendIterationReport(int cost, int bestCost, double temperature) {
-        long currentTime = System.currentTimeMillis();
-        int iterationNumber = iterationReports.size();
-        iterationReports.add(new ReportNode(iterationNumber, cost, bestCost, currentTime - initialTime, temperature));
-    }
+        Path resolve(@NotNull Path resultsFilePath) {
+            if (this == ANNEALING) return resultsFilePath;
 
-    void dump(@NotNull BufferedWriter writer,
-              @NotNull String id,
-              boolean writeHeader) throws IOException {
-        if (writeHeader) {
-            writer.append("id iteration cost bestCost time currentTemperature");
+            String fileName = resultsFilePath.getFileName().toString();
+            return resultsFilePath.resolveSibling(fileName.replaceAll("\\.txt$", "_" + name().toLowerCase() + ".txt"));
         }
 
-        String lineFormat = "%s %d %d %d %d %.2f";
-
-        for (ReportNode node : iterationReports) {
-            writer.newLine();
-            writer.append(String.format(lineFormat,
-                    id,
-                    node.iteration,
-                    node.cost,
-                    node.bestCost,
-                    node.time,
-                    node.temperature));
+        /**
+         * Reads the engine from the {@code sudoku.engine} system property, {@code annealing} by default.
+         */
+        static Engine fromSystemProperties() {
+            return valueOf(System.getProperty("sudoku.engine", "ANNEALING").toUpperCase());
         }
     }
 
-    private static class ReportNode {
-        final int iteration;
-        final int cost;
-        final int bestCost;
-        final long time;
-        final double temperature;
+    /**
+     * What to do once the best energy of the current attempt stops improving.
+     */
+    enum StagnationAction {
+        /**
+         * Keep cooling until the minimum temperature is reached.
+         */
+        NONE,
+        /**
+         * Raise the temperature back to the initial one, keeping the current board.
+         */
+        REHEAT,
+        /**
+         * Raise the temperature back to the initial one and fill the non fixed positions randomly again.
+         */
+        RESTART
+    }
 
-        private ReportNode(int iteration, int cost, int bestCost, long time, double temperature) {
-            this.iteration = iteration;
-            this.cost = cost;
-            this.bestCost = bestCost;
-            this.time = time;
-            this.temperature = temperature;
+    static final class StagnationPolicy {
+        final StagnationAction action;
+        final long iterations;
+        final int maximumAttempts;
+
+        /**
+         * @param action          to take once the current attempt stagnates
+         * @param iterations      without improving the attempt's best energy after which it is considered stagnated
+         * @param maximumAttempts including the first one, after which the annealer just cools down
+         */
+        StagnationPolicy(@NotNull StagnationAction action, long iterations, int maximumAttempts) {
+            if (iterations < 1) throw new IllegalArgumentException("iterations cannot be < 1");
+            if (maximumAttempts < 1) throw new IllegalArgumentException("maximumAttempts cannot be < 1");
+
+            this.action = action;
+            this.iterations = iterations;
+            this.maximumAttempts = maximumAttempts;
         }
-    }
 
-}
\ No newline at end of file
+        /**
+         * Reads the policy from the {@code sudoku.stagnation.action}, {@code sudoku.stagnation.iterations} and
+         * {@code sudoku.stagnation.attempts} system properties. Stagnation is ignored unless an action is given.
+         */
+        static StagnationPolicy fromSystemProperties() {
+            return new StagnationPolicy(
+                    StagnationAction.valueOf(System.getProperty("sudoku.stagnation.action", "NONE").toUpperCase()),
+                    Long.getLong("sudoku.stagnation.iterations", 100_000L),
+                    Integer.getInteger("sudoku.stagnation.attempts", 5));
+        }
+
+        boolean allowsAttempt(int attempt) {
+            return action != StagnationAction.NONE && attempt <= maximumAttempts;
+        }
+    }
+    
+}
@@ -0,0 +1,377 @@
+import com.sun.istack.internal.NotNull;
+import sudoku.Sudoku;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streams the iterations of a single annealing run to a {@link TraceSink} as they happen, keeping only the rows
+ * selected by its {@link Sampling}.
+ */
+final class SimulatedAnnealingReport {
+
+    private final TraceSink sink;
+    private final Sampling sampling;
+    private long initialTime = System.nanoTime();
+
+    private long iteration = -1;
+    private int cost;
+    private int bestCost = Integer.MAX_VALUE;
+    private long time;
+    private double temperature = Double.NaN;
+    private int attempt;
+    private boolean lastWritten;
+
+    /**
+     * Iteration and time at which the best cost first reached zero, or {@code -1} while it has not.
+     */
+    private long solutionIteration = -1;
+    private long solutionTime = -1;
+
+    /**
+     * Temperature, iterations and applied moves of every temperature ended so far, in the order they were run.
+     */
+    private double[] temperatures = new double[16];
+    private long[] temperatureIterations = new long[16];
+    private long[] temperatureAccepted = new long[16];
+    private int temperatureCount;
+
+    private Sudoku best;
+
+    /**
+     * @param sink     receives the sampled iterations
+     * @param sampling decides which iterations are written
+     */
+    SimulatedAnnealingReport(@NotNull TraceSink sink, @NotNull Sampling sampling) {
+        this.sink = sink;
+        this.sampling = sampling;
+    }
+
+    void appendIterationReport(int cost, int bestCost, double temperature, int attempt) {
+        boolean improved = bestCost < this.bestCost;
+        boolean temperatureChanged = temperature != this.temperature;
+
+        iteration++;
+        this.cost = cost;
+        this.bestCost = bestCost;
+        this.time = System.nanoTime() - initialTime;
+        this.temperature = temperature;
+        this.attempt = attempt;
+
+        if (bestCost == 0 && solutionIteration < 0) {
+            solutionIteration = iteration;
+            solutionTime = time;
+        }
+
+        lastWritten = sampling.mode == Sampling.Mode.NONE
+                || iteration == 0
+                || sampling.accepts(iteration, improved, temperatureChanged);
+        if (lastWritten && sampling.mode != Sampling.Mode.NONE) writeRow();
+    }
+
+    /**
+     * Records the acceptance of the temperature that just ended, at which the last iteration was run.
+     */
+    void endTemperature(@NotNull Equilibrium equilibrium) {
+        if (temperatureCount == temperatures.length) {
+            temperatures = Arrays.copyOf(temperatures, 2 * temperatureCount);
+            temperatureIterations = Arrays.copyOf(temperatureIterations, 2 * temperatureCount);
+            temperatureAccepted = Arrays.copyOf(temperatureAccepted, 2 * temperatureCount);
+        }
+
+        temperatures[temperatureCount] = temperature;
+        temperatureIterations[temperatureCount] = equilibrium.iterations();
+        temperatureAccepted[temperatureCount] = equilibrium.accepted();
+        temperatureCount++;
+    }
+
+    /**
+     * Writes the last recorded iteration unless the sampling already did, so every trace ends with the final state,
+     * and lets the sink write out whatever it buffered.
+     */
+    void finish() {
+        if (!lastWritten && iteration >= 0) writeRow();
+        lastWritten = true;
+        sink.finish();
+    }
+
+    /**
+     * @return the outcome of the iterations recorded so far
+     */
+    Summary summary() {
+        return new Summary(bestCost, iteration + 1, time, solutionIteration, solutionTime,
+                Arrays.copyOf(temperatures, temperatureCount),
+                Arrays.copyOf(temperatureIterations, temperatureCount),
+                Arrays.copyOf(temperatureAccepted, temperatureCount));
+    }
+
+    /**
+     * @param best snapshot of the board with the lowest energy found so far
+     */
+    void setBest(@NotNull Sudoku best) {
+        this.best = best;
+    }
+
+    Sudoku getBest() {
+        return best;
+    }
+
+    /**
+     * @return the amount of iterations recorded so far, sampled or not
+     */
+    long iterations() {
+        return iteration + 1;
+    }
+
+    private void writeRow() {
+        sink.append(iteration, cost, bestCost, time, temperature, attempt);
+    }
+
+    /**
+     * Writes out the rows the sink buffered so far.
+     */
+    void flush() {
+        sink.flush();
+    }
+
+    /**
+     * @return the state needed to carry on recording a run from its last iteration
+     */
+    State state() {
+        return new State(iteration, cost, bestCost, time, temperature, attempt, lastWritten, summary());
+    }
+
+    /**
+     * Carries on recording a run from the last iteration of {@code state}, as if every previous iteration had been
+     * recorded here. Times keep counting from the time of that iteration.
+     */
+    void restore(@NotNull State state) {
+        iteration = state.iteration;
+        cost = state.cost;
+        bestCost = state.bestCost;
+        time = state.time;
+        temperature = state.temperature;
+        attempt = state.attempt;
+        lastWritten = state.lastWritten;
+        initialTime = System.nanoTime() - state.time;
+
+        solutionIteration = state.summary.solutionIteration;
+        solutionTime = state.summary.solutionTime;
+        temperatureCount = state.summary.temperatures.length;
+        temperatures = Arrays.copyOf(state.summary.temperatures, Math.max(temperatureCount, 16));
+        temperatureIterations = Arrays.copyOf(state.summary.temperatureIterations, temperatures.length);
+        temperatureAccepted = Arrays.copyOf(state.summary.temperatureAccepted, temperatures.length);
+    }
+
+    /**
+     * Last iteration recorded by a report.
+     */
+    static final class State {
+        private final long iteration;
+        private final int cost;
+        private final int bestCost;
+        private final long time;
+        private final double temperature;
+        private final int attempt;
+        private final boolean lastWritten;
+        private final Summary summary;
+
+        private State(long iteration,
+                      int cost,
+                      int bestCost,
+                      long time,
+                      double temperature,
+                      int attempt,
+                      boolean lastWritten,
+                      @NotNull Summary summary) {
+            this.iteration = iteration;
+            this.cost = cost;
+            this.bestCost = bestCost;
+            this.time = time;
+            this.temperature = temperature;
+            this.attempt = attempt;
+            this.lastWritten = lastWritten;
+            this.summary = summary;
+        }
+
+        void write(@NotNull DataOutput output) throws IOException {
+            output.writeLong(iteration);
+            output.writeInt(cost);
+            output.writeInt(bestCost);
+            output.writeLong(time);
+            output.writeDouble(temperature);
+            output.writeInt(attempt);
+            output.writeBoolean(lastWritten);
+
+            // Every other field of the summary is already above
+            output.writeLong(summary.solutionIteration);
+            output.writeLong(summary.solutionTime);
+            output.writeInt(summary.temperatures.length);
+            for (int i = 0; i < summary.temperatures.length; i++) {
+                output.writeDouble(summary.temperatures[i]);
+                output.writeLong(summary.temperatureIterations[i]);
+                output.writeLong(summary.temperatureAccepted[i]);
+            }
+        }
+
+        static State read(@NotNull DataInput input) throws IOException {
+            long iteration = input.readLong();
+            int cost = input.readInt();
+            int bestCost = input.readInt();
+            long time = input.readLong();
+            double temperature = input.readDouble();
+            int attempt = input.readInt();
+            boolean lastWritten = input.readBoolean();
+
+            long solutionIteration = input.readLong();
+            long solutionTime = input.readLong();
+            int temperatureCount = input.readInt();
+            double[] temperatures = new double[temperatureCount];
+            long[] temperatureIterations = new long[temperatureCount];
+            long[] temperatureAccepted = new long[temperatureCount];
+            for (int i = 0; i < temperatureCount; i++) {
+                temperatures[i] = input.readDouble();
+                temperatureIterations[i] = input.readLong();
+                temperatureAccepted[i] = input.readLong();
+            }
+
+            return new State(iteration, cost, bestCost, time, temperature, attempt, lastWritten,
+                    new Summary(bestCost, iteration + 1, time, solutionIteration, solutionTime,
+                            temperatures, temperatureIterations, temperatureAccepted));
+        }
+    }
+
+    /**
+     * Outcome of a run, reduced from every one of its iterations whatever the sampling.
+     */
+    static final class Summary {
+        final int bestCost;
+        final long iterations;
+        final long time;
+
+        /**
+         * Iteration and time at which the board was first solved, or {@code -1} if it never was.
+         */
+        final long solutionIteration;
+        final long solutionTime;
+
+        /**
+         * Temperature, iterations and applied moves of every temperature the run went through, in order.
+         */
+        final double[] temperatures;
+        final long[] temperatureIterations;
+        final long[] temperatureAccepted;
+
+        private Summary(int bestCost,
+                        long iterations,
+                        long time,
+                        long solutionIteration,
+                        long solutionTime,
+                        @NotNull double[] temperatures,
+                        @NotNull long[] temperatureIterations,
+                        @NotNull long[] temperatureAccepted) {
+            this.bestCost = bestCost;
+            this.iterations = iterations;
+            this.time = time;
+            this.solutionIteration = solutionIteration;
+            this.solutionTime = solutionTime;
+            this.temperatures = temperatures;
+            this.temperatureIterations = temperatureIterations;
+            this.temperatureAccepted = temperatureAccepted;
+        }
+
+        boolean isSolved() {
+            return solutionIteration >= 0;
+        }
+    }
+
+    /**
+     * Selects which iterations of a run end up in its report. The first and the last iterations are always written,
+     * unless the mode is {@link Mode#NONE}.
+     */
+    static final class Sampling {
+
+        enum Mode {
+            /**
+             * Every iteration.
+             */
+            ALL,
+            /**
+             * One out of every {@code k} iterations.
+             */
+            EVERY_K,
+            /**
+             * The first iteration at every temperature.
+             */
+            PER_TEMPERATURE,
+            /**
+             * Iterations lowering the best cost.
+             */
+            ON_IMPROVEMENT,
+            /**
+             * No iteration at all, for runs that only need their {@link Summary}.
+             */
+            NONE
+        }
+
+        final Mode mode;
+        final long k;
+
+        private Sampling(@NotNull Mode mode, long k) {
+            if (k < 1) throw new IllegalArgumentException("k cannot be < 1");
+
+            this.mode = mode;
+            this.k = k;
+        }
+
+        static Sampling all() {
+            return new Sampling(Mode.ALL, 1);
+        }
+
+        static Sampling everyK(long k) {
+            return new Sampling(Mode.EVERY_K, k);
+        }
+
+        static Sampling perTemperature() {
+            return new Sampling(Mode.PER_TEMPERATURE, 1);
+        }
+
+        static Sampling onImprovement() {
+            return new Sampling(Mode.ON_IMPROVEMENT, 1);
+        }
+
+        static Sampling none() {
+            return new Sampling(Mode.NONE, 1);
+        }
+
+        /**
+         * Reads the sampling from the {@code sudoku.report.sampling} system property, which takes one of {@code all},
+         * {@code every_k} (along with {@code sudoku.report.k}), {@code per_temperature}, {@code on_improvement} or
+         * {@code none}. Every iteration is written by default.
+         */
+        static Sampling fromSystemProperties() {
+            return new Sampling(Mode.valueOf(System.getProperty("sudoku.report.sampling", "ALL").toUpperCase()),
+                    Long.getLong("sudoku.report.k", 1000L));
+        }
+
+        boolean accepts(long iteration, boolean improved, boolean temperatureChanged) {
+            switch (mode) {
+                case ALL:
+                    return true;
+                case EVERY_K:
+                    return iteration % k == 0;
+                case PER_TEMPERATURE:
+                    return temperatureChanged;
+                case ON_IMPROVEMENT:
+                    return improved;
+                case NONE:
+                    return false;
+                default:
+                    throw new IllegalStateException("Invalid Sampling mode -> " + mode);
+            }
+        }
+    }
+
+}
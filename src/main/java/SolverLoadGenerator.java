@@ -0,0 +1,165 @@
+import com.sun.istack.internal.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput and latency of a {@link SolverServer} by posting instances from a fixed amount of clients,
+ * each sending its next request as soon as the previous one is answered.
+ *
+ * Rejected requests are counted apart and not retried, so running it with more clients than the server queues shows
+ * how much load it turns down rather than how long clients would wait.
+ */
+public final class SolverLoadGenerator {
+
+    private final URL url;
+    private final List<byte[]> instances;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong unsolved = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Of answered requests, in microseconds. Guarded by itself.
+     */
+    private final ResultsSummary.Histogram latencies = new ResultsSummary.Histogram();
+
+    /**
+     * @param instances posted in turns, as read from their files
+     */
+    SolverLoadGenerator(@NotNull URL url, @NotNull List<byte[]> instances) {
+        if (instances.isEmpty()) throw new IllegalArgumentException("instances cannot be empty");
+
+        this.url = url;
+        this.instances = instances;
+    }
+
+    /**
+     * Posts {@code requests} instances from {@code clients} concurrent clients and prints a summary once every
+     * request was answered.
+     */
+    void run(long requests, int clients) {
+        if (clients < 1) throw new IllegalArgumentException("clients cannot be < 1");
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<?>> futures = new ArrayList<>(clients);
+        long start = System.nanoTime();
+
+        try {
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> {
+                    for (long request; (request = sent.getAndIncrement()) < requests; ) {
+                        post(instances.get((int) (request % instances.size())));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long answered = solved.get() + unsolved.get();
+
+        synchronized (latencies) {
+            System.out.println(String.format(Locale.ROOT,
+                    "requests %d in %.2f s: %d solved, %d unsolved, %d rejected, %d failed; %.1f answered/s; " +
+                            "latency p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                    requests, seconds, solved.get(), unsolved.get(), rejected.get(), failed.get(), answered / seconds,
+                    latencies.percentile(0.5) / 1e3, latencies.percentile(0.9) / 1e3,
+                    latencies.percentile(0.99) / 1e3, latencies.percentile(1.0) / 1e3));
+        }
+    }
+
+    private void post(byte[] instance) {
+        long start = System.nanoTime();
+
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(instance.length);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(instance);
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_UNAVAILABLE) {
+                rejected.incrementAndGet();
+                read(connection.getErrorStream());
+                return;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                failed.incrementAndGet();
+                read(connection.getErrorStream());
+                return;
+            }
+
+            String response = new String(read(connection.getInputStream()), "US-ASCII");
+            long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+            // The first line holds the repetitions of the board
+            if (Integer.parseInt(response.substring(0, response.indexOf('\n'))) == 0) {
+                solved.incrementAndGet();
+            } else {
+                unsolved.incrementAndGet();
+            }
+            synchronized (latencies) {
+                latencies.record(latency);
+            }
+        } catch (IOException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reads {@code input} to its end, so the connection can be reused.
+     */
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        if (input == null) return content.toByteArray();
+
+        try (InputStream closing = input) {
+            byte[] buffer = new byte[8192];
+            for (int read; (read = closing.read(buffer)) != -1; ) content.write(buffer, 0, read);
+        }
+
+        return content.toByteArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: SolverLoadGenerator <url> <requests> <clients> <instance file>...");
+            System.exit(1);
+        }
+
+        List<byte[]> instances = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) instances.add(Files.readAllBytes(Paths.get(args[i])));
+
+        new SolverLoadGenerator(new URL(args[0]), instances).run(Long.parseLong(args[1]), Integer.parseInt(args[2]));
+    }
+
+}
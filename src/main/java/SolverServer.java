@@ -0,0 +1,365 @@
+import com.sun.istack.internal.NotNull;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import sudoku.Sudoku;
+import sudoku.Sudoku.ContentFileConfig;
+import sudoku.Sudoku.NeighborStrategy;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long lived local service annealing the instances posted to it, within a deadline per request.
+ *
+ * Instances are posted to {@code /solve} in the format read by {@link Sudoku.ValueSeparatorFileConfig}, with values
+ * separated by spaces. An optional {@code timeout} query parameter sets the milliseconds the request may take, counted
+ * from its acceptance, and otherwise {@link #DEFAULT_TIMEOUT_MILLIS} applies. The response holds the repetitions of the
+ * best board found on its first line, {@code 0} if it is a solution, followed by the board in the same format.
+ *
+ * Accepted requests wait in a bounded queue for one of the workers, which anneal as {@link AnytimeSolver} does. Small
+ * instances anneal within milliseconds, about as long as setting their run up, so a worker taking one also takes the
+ * small ones queued behind it that no idle worker would take, and anneals the batch with a single
+ * {@link SimulatedAnnealing.Annealer}. Each request still stops at its own deadline and is answered as soon as its run
+ * ends. Once the queue is full requests are turned down at once with {@code 503 Service Unavailable}, so clients back
+ * off instead of piling up. Requests and their annealing show in the {@link AnnealingMetrics}.
+ *
+ * Requests are handled on virtual threads where the runtime has them, since they only wait for workers, while workers
+ * are platform threads, one per processor by default, since annealing never blocks.
+ */
+public final class SolverServer implements AutoCloseable {
+
+    /**
+     * Milliseconds a request may take when it sets no {@code timeout}, configurable through the
+     * {@code sudoku.server.timeout} system property.
+     */
+    static final long DEFAULT_TIMEOUT_MILLIS = Long.getLong("sudoku.server.timeout", 1000);
+
+    /**
+     * Requests waiting for a worker past which new ones are turned down, configurable through the
+     * {@code sudoku.server.queue} system property.
+     */
+    private static final int QUEUE_CAPACITY = Integer.getInteger("sudoku.server.queue", 1024);
+
+    /**
+     * Small instances a worker anneals in a batch at most, configurable through the {@code sudoku.server.batch}
+     * system property.
+     */
+    private static final int BATCH_SIZE = Integer.getInteger("sudoku.server.batch", 16);
+
+    /**
+     * Largest square size of the instances annealed in batches.
+     */
+    private static final int BATCHED_SQUARE_SIZE = 3;
+
+    /**
+     * Largest request body accepted, far above the size of a 10x10 instance.
+     */
+    private static final int MAXIMUM_REQUEST_BYTES = 1 << 16;
+
+    private final NeighborStrategy neighborStrategy;
+    private final double initialTemperature;
+    private final double minimumTemperature;
+    private final double coolingRate;
+    private final int batchSize;
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ExecutorService workers;
+    private final BlockingQueue<Request> queue;
+
+    /**
+     * Workers waiting for a request, which batches leave to them.
+     */
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+
+    /**
+     * @param parallelism   amount of workers, each annealing a single instance at a time
+     * @param queueCapacity requests waiting for a worker past which new ones are turned down
+     * @param batchSize     small instances a worker anneals in a batch at most
+     * @param seed          from which the seed of every worker is drawn
+     */
+    SolverServer(@NotNull InetSocketAddress address,
+                 @NotNull NeighborStrategy neighborStrategy,
+                 double initialTemperature,
+                 double minimumTemperature,
+                 double coolingRate,
+                 int parallelism,
+                 int queueCapacity,
+                 int batchSize,
+                 long seed) throws IOException {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism cannot be < 1");
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize cannot be < 1");
+
+        this.neighborStrategy = neighborStrategy;
+        this.initialTemperature = initialTemperature;
+        this.minimumTemperature = minimumTemperature;
+        this.coolingRate = coolingRate;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        handlers = handlerExecutor();
+        workers = Executors.newFixedThreadPool(parallelism);
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int i = 0; i < parallelism; i++) {
+            SplittableRandom random = seeds.split();
+            workers.execute(() -> work(random));
+        }
+
+        server = HttpServer.create(address, 0);
+        server.createContext("/solve", this::handle);
+        server.setExecutor(handlers);
+        server.start();
+        AnnealingMetrics.INSTANCE.start();
+    }
+
+    /**
+     * @return an executor starting a virtual thread per request where the runtime has them, or else a cached pool.
+     * Either way the amount of requests in flight is bounded by the queue.
+     */
+    private static ExecutorService handlerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Instances must be posted\n");
+                return;
+            }
+
+            byte[] body = read(exchange.getRequestBody());
+            if (body == null) {
+                respond(exchange, 413, "Requests cannot exceed " + MAXIMUM_REQUEST_BYTES + " bytes\n");
+                return;
+            }
+
+            long timeoutMillis;
+            Sudoku instance;
+            try {
+                timeoutMillis = timeoutMillis(exchange.getRequestURI());
+                instance = Sudoku.of(new ContentFileConfig("request", body, ' '));
+            } catch (RuntimeException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+
+            Request request = new Request(instance, TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+            AnnealingMetrics.INSTANCE.trialQueued();
+            if (!queue.offer(request)) {
+                AnnealingMetrics.INSTANCE.trialRejected();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "Queue full\n");
+                return;
+            }
+
+            Sudoku best;
+            try {
+                best = request.solution.get();
+            } catch (ExecutionException e) {
+                respond(exchange, 500, e.getCause() + "\n");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, "Server closing\n");
+                return;
+            }
+
+            StringWriter board = new StringWriter();
+            try (BufferedWriter writer = new BufferedWriter(board)) {
+                best.dump(writer);
+            }
+            respond(exchange, 200, best.repetitions() + "\n" + board + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static long timeoutMillis(URI uri) {
+        String query = uri.getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (!parameter.startsWith("timeout=")) continue;
+
+                long timeoutMillis = Long.parseLong(parameter.substring("timeout=".length()));
+                if (timeoutMillis < 0) throw new IllegalArgumentException("timeout cannot be < 0");
+
+                return timeoutMillis;
+            }
+        }
+
+        return DEFAULT_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * @return the content of {@code input}, or {@code null} if it exceeds {@link #MAXIMUM_REQUEST_BYTES}, in which
+     * case reading stops there
+     */
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        for (int read; (read = input.read(buffer)) != -1; ) {
+            if (content.size() + read > MAXIMUM_REQUEST_BYTES) return null;
+            content.write(buffer, 0, read);
+        }
+
+        return content.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.US_ASCII);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, content.length);
+        exchange.getResponseBody().write(content);
+    }
+
+    /**
+     * Anneals queued requests until the server closes. A small instance is batched with the small ones queued behind
+     * it, as long as they outnumber the idle workers, so batching never keeps a request from a worker that could start
+     * it at once. A bigger instance met while batching ends the batch and is annealed after it.
+     */
+    private void work(SplittableRandom random) {
+        List<Request> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (true) {
+                Request request;
+                idleWorkers.incrementAndGet();
+                try {
+                    request = queue.take();
+                } finally {
+                    idleWorkers.decrementAndGet();
+                }
+                batch.add(request);
+
+                Request bigger = null;
+                while (request.isSmall() && batch.size() < batchSize && queue.size() > idleWorkers.get()) {
+                    Request next = queue.poll();
+                    if (next == null) break;
+                    if (!next.isSmall()) {
+                        bigger = next;
+                        break;
+                    }
+
+                    batch.add(next);
+                }
+
+                solve(batch, random);
+                batch.clear();
+                if (bigger != null) solve(Collections.singletonList(bigger), random);
+            }
+        } catch (InterruptedException e) {
+            // Closing
+        }
+    }
+
+    /**
+     * Anneals {@code batch}, whose instances share a square size, one request after the other with a single
+     * {@link SimulatedAnnealing.Annealer}.
+     */
+    private void solve(List<Request> batch, SplittableRandom random) {
+        SimulatedAnnealing.Annealer annealer = new SimulatedAnnealing.Annealer(neighborStrategy, initialTemperature,
+                minimumTemperature, coolingRate, batch.get(0).instance.getSquareSize(), random.split());
+
+        for (Request request : batch) request.solve(annealer);
+    }
+
+    /**
+     * Stops accepting requests and fails the ones still queued. Runs in progress stop at their next poll, and the rest
+     * of their batches at their first.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+
+        for (Request request; (request = queue.poll()) != null; ) {
+            AnnealingMetrics.INSTANCE.trialRejected();
+            request.solution.completeExceptionally(new IllegalStateException("Server closed"));
+        }
+
+        handlers.shutdown();
+        AnnealingMetrics.INSTANCE.stop();
+    }
+
+    private final class Request {
+        final Sudoku instance;
+        final CompletableFuture<Sudoku> solution = new CompletableFuture<>();
+
+        /**
+         * From which both the deadline and the solution time count, so they cover the time spent in the queue.
+         */
+        final long acceptanceTime = System.nanoTime();
+        final AnnealingBudget budget;
+
+        Request(Sudoku instance, long timeoutNanos) {
+            this.instance = instance;
+            // Workers are interrupted when the server closes
+            this.budget = new AnnealingBudget(Long.MAX_VALUE, timeoutNanos,
+                    () -> Thread.currentThread().isInterrupted());
+        }
+
+        boolean isSmall() {
+            return instance.getSquareSize() <= BATCHED_SQUARE_SIZE;
+        }
+
+        void solve(SimulatedAnnealing.Annealer annealer) {
+            AnnealingMetrics.INSTANCE.trialStarted();
+            long queueTime = System.nanoTime() - acceptanceTime;
+            boolean completed = false;
+
+            try {
+                SimulatedAnnealingReport report = annealer.anneal(instance, budget);
+                SimulatedAnnealingReport.Summary summary = report.summary();
+                AnnealingMetrics.INSTANCE.trialCompleted(summary.isSolved(), queueTime + summary.solutionTime);
+                completed = true;
+
+                solution.complete(report.getBest());
+            } catch (RuntimeException | Error e) {
+                solution.completeExceptionally(e);
+            } finally {
+                if (!completed) AnnealingMetrics.INSTANCE.trialFailed();
+            }
+        }
+    }
+
+    /**
+     * Serves on the loopback interface until the process is stopped, with the annealing parameters of
+     * {@link SimulatedAnnealing#main(String[])} and a worker per processor, or {@code sudoku.parallelism}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SolverServer <port>");
+            System.exit(1);
+        }
+
+        SolverServer server = new SolverServer(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(args[0])), SimulatedAnnealing.BEST_NEIGHBOR_STRATEGY,
+                SimulatedAnnealing.INITIAL_TEMPERATURE, SimulatedAnnealing.BEST_MINIMUM_TEMPERATURE,
+                SimulatedAnnealing.COOLING_RATE, SimulatedAnnealing.DEFAULT_PARALLELISM, QUEUE_CAPACITY, BATCH_SIZE,
+                Long.getLong("sudoku.seed", System.nanoTime()));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+
+        System.err.println("Solving instances posted to http://" + server.address().getHostString() + ":" +
+                server.address().getPort() + "/solve");
+    }
+
+}
@@ -0,0 +1,115 @@
+import com.sun.istack.internal.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes rows as whitespace separated text. Rows are formatted into a reusable buffer, so appending a row allocates
+ * nothing.
+ */
+final class TextTraceSink implements TraceSink {
+
+    static final String HEADER = "id iteration cost bestCost time currentTemperature attempt";
+
+    private final Writer writer;
+    private final char[] id;
+    private final char separator;
+    private final char[] row = new char[128];
+
+    /**
+     * @param writer receives one line per row, each preceded by a line break
+     * @param id     of the instance, written as the first column of every row
+     */
+    TextTraceSink(@NotNull Writer writer, @NotNull String id) {
+        this(writer, id, ' ');
+    }
+
+    /**
+     * @param separator written between columns instead of a space
+     */
+    TextTraceSink(@NotNull Writer writer, @NotNull String id, char separator) {
+        this.writer = writer;
+        this.id = id.toCharArray();
+        this.separator = separator;
+    }
+
+    @Override
+    public void append(long iteration, int cost, int bestCost, long timeNanos, double temperature, int attempt) {
+        int length = 0;
+
+        row[length++] = '\n';
+        System.arraycopy(id, 0, row, length, id.length);
+        length += id.length;
+        row[length++] = separator;
+        length = appendLong(iteration, length);
+        row[length++] = separator;
+        length = appendLong(cost, length);
+        row[length++] = separator;
+        length = appendLong(bestCost, length);
+        row[length++] = separator;
+        // Milliseconds, as in the existing results files
+        length = appendLong(timeNanos / 1_000_000, length);
+        row[length++] = separator;
+        length = appendTwoDecimals(temperature, length);
+        row[length++] = separator;
+        length = appendLong(attempt, length);
+
+        try {
+            writer.write(row, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void finish() {
+        flush();
+    }
+
+    private int appendLong(long value, int offset) {
+        if (value < 0) {
+            row[offset++] = '-';
+            value = -value;
+        }
+
+        int start = offset;
+        do {
+            row[offset++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+
+        // Digits were written least significant first
+        for (int i = start, j = offset - 1; i < j; i++, j--) {
+            char buffer = row[i];
+            row[i] = row[j];
+            row[j] = buffer;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Same output as formatting with {@code "%.2f"} for the finite, non negative temperatures the annealer uses.
+     */
+    private int appendTwoDecimals(double value, int offset) {
+        long hundredths = Math.round(value * 100);
+
+        offset = appendLong(hundredths / 100, offset);
+        row[offset++] = '.';
+        row[offset++] = (char) ('0' + hundredths % 100 / 10);
+        row[offset++] = (char) ('0' + hundredths % 10);
+
+        return offset;
+    }
+
+}
@@ -0,0 +1,75 @@
+import com.sun.istack.internal.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.BufferedWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Formats in which trial runners can write their results files.
+ */
+enum TraceFormat {
+    /**
+     * Whitespace separated text, one row per line, as read by the plot scripts.
+     */
+    TEXT("txt") {
+        @Override
+        void writeHeader(@NotNull OutputStream output, boolean emptyFile) throws IOException {
+            output.write(TextTraceSink.HEADER.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        TraceSink newSink(@NotNull OutputStream output, @NotNull String id) {
+            return new TextTraceSink(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.US_ASCII)), id);
+        }
+    },
+    /**
+     * Fixed width columnar chunks described in {@link BinaryTrace}.
+     */
+    BINARY("bin") {
+        @Override
+        void writeHeader(@NotNull OutputStream output, boolean emptyFile) throws IOException {
+            // Appended runs are just more chunks, so the header only goes at the start of the file
+            if (emptyFile) BinaryTrace.writeHeader(Channels.newChannel(output));
+        }
+
+        @Override
+        TraceSink newSink(@NotNull OutputStream output, @NotNull String id) {
+            return new BinaryTrace.Sink(Channels.newChannel(output), Integer.parseInt(id));
+        }
+    };
+
+    private final String extension;
+
+    TraceFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @param emptyFile whether {@code output} is positioned at the start of a new file
+     */
+    abstract void writeHeader(@NotNull OutputStream output, boolean emptyFile) throws IOException;
+
+    /**
+     * @return a sink writing the rows of instance {@code id} to {@code output}
+     */
+    abstract TraceSink newSink(@NotNull OutputStream output, @NotNull String id);
+
+    /**
+     * @return {@code resultsFilePath} with its {@code .txt} extension replaced by this format's one
+     */
+    Path resolve(@NotNull Path resultsFilePath) {
+        String fileName = resultsFilePath.getFileName().toString();
+        return resultsFilePath.resolveSibling(fileName.replaceAll("\\.txt$", "." + extension));
+    }
+
+    /**
+     * Reads the format from the {@code sudoku.report.format} system property, {@code text} by default.
+     */
+    static TraceFormat fromSystemProperties() {
+        return valueOf(System.getProperty("sudoku.report.format", "TEXT").toUpperCase());
+    }
+}
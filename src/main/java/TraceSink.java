@@ -0,0 +1,35 @@
+/**
+ * Destination of the iterations a {@link SimulatedAnnealingReport} decides to keep, for a single instance.
+ */
+interface TraceSink {
+
+    /**
+     * Keeps nothing, for runs whose rows are of no interest.
+     */
+    TraceSink DISCARDING = new TraceSink() {
+        @Override
+        public void append(long iteration, int cost, int bestCost, long timeNanos, double temperature, int attempt) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void finish() {
+        }
+    };
+
+    void append(long iteration, int cost, int bestCost, long timeNanos, double temperature, int attempt);
+
+    /**
+     * Writes out the rows buffered so far, as done before the state of a run is checkpointed. More rows may follow.
+     */
+    void flush();
+
+    /**
+     * Called once after the last row of the instance, so buffered rows can be written out.
+     */
+    void finish();
+
+}
@@ -0,0 +1,376 @@
+import com.sun.istack.internal.NotNull;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The results and seeds files of a trial runner, along with the progress records that let an interrupted run resume.
+ *
+ * Every completed trial is recorded in a {@code _completed.txt} sidecar as an {@code id results_bytes seeds_bytes}
+ * line, holding the sizes of both files once its report and seed were written. Unlike in the other files, lines end
+ * with a line break, so a line cut short by an interruption is easy to tell. Reopening truncates both files back to
+ * the last completed trial, dropping the rows of trials that were interrupted, and completed ids are skipped by the
+ * runner. Results files written before the record existed cannot tell complete trials from interrupted ones, so they
+ * are refused rather than appended to.
+ *
+ * Long trials also save {@link Checkpoint}s into a {@code _checkpoints} directory, one file per trial replaced on every
+ * save, from which they resume instead of starting over. A checkpoint is deleted once its trial completes.
+ *
+ * The {@link ResultsSummary} of completed trials is kept in a {@code _summary.bin} file, replaced as every trial
+ * completes, and written out as text to {@code _summary.txt} once the runner is done. The new summary is saved aside
+ * before the trial is recorded as completed and only put in place afterwards, so it always matches the completed record.
+ * Summaries that do not, such as the missing ones of records written before summaries existed, start over.
+ */
+final class TrialProgress implements Closeable {
+
+    private static final int CHECKPOINT_MAGIC = 0x53414350;
+    private static final int CHECKPOINT_VERSION = 2;
+
+    private static final String COMPLETED_HEADER = "id results_bytes seeds_bytes";
+
+    private final Path checkpointsPath;
+    private final Path summaryPath;
+    private final Path summaryTextPath;
+    private final Set<String> completedIds;
+    private final ResultsSummary summary;
+
+    private final FileChannel results;
+    private final FileChannel seeds;
+    private final OutputStream output;
+    private final Writer seedsOutput;
+    private final Writer completedOutput;
+
+    private TrialProgress(@NotNull Path outputPath,
+                          @NotNull Path seedsPath,
+                          @NotNull Path completedPath,
+                          @NotNull Path checkpointsPath,
+                          @NotNull Path summaryPath,
+                          @NotNull Path summaryTextPath,
+                          @NotNull TraceFormat format) throws IOException {
+        this.checkpointsPath = checkpointsPath;
+        this.summaryPath = summaryPath;
+        this.summaryTextPath = summaryTextPath;
+
+        completedIds = new HashSet<>();
+        long resultsBytes = 0;
+        long seedsBytes = 0;
+
+        if (Files.exists(completedPath)) {
+            byte[] content = Files.readAllBytes(completedPath);
+            String[] lines = new String(content, StandardCharsets.US_ASCII).split("\n", -1);
+            long validBytes = lines[0].length() + 1;
+
+            for (int i = 1; i < lines.length - 1; i++) {
+                String[] columns = lines[i].split(" ");
+
+                completedIds.add(columns[0]);
+                resultsBytes = Long.parseLong(columns[1]);
+                seedsBytes = Long.parseLong(columns[2]);
+                validBytes += lines[i].length() + 1;
+            }
+
+            try (FileChannel completed = FileChannel.open(completedPath, StandardOpenOption.WRITE)) {
+                completed.truncate(validBytes);
+            }
+        } else {
+            if (isNotEmpty(outputPath) || isNotEmpty(seedsPath)) {
+                throw new IllegalStateException("Results file " + outputPath + " was written without a completed"
+                        + " record, so interrupted trials cannot be told apart. Move it away to run its trials again.");
+            }
+
+            Files.write(completedPath, (COMPLETED_HEADER + '\n').getBytes(StandardCharsets.US_ASCII));
+        }
+
+        if (Files.isDirectory(checkpointsPath)) resultsBytes = Math.max(resultsBytes, dropStaleCheckpoints());
+        summary = loadSummary(completedIds.size());
+
+        results = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        seeds = FileChannel.open(seedsPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (results.size() < resultsBytes || seeds.size() < seedsBytes) {
+            results.close();
+            seeds.close();
+            throw new IllegalStateException("Results file " + outputPath + " is shorter than its completed record");
+        }
+
+        results.truncate(resultsBytes);
+        results.position(resultsBytes);
+        seeds.truncate(seedsBytes);
+        seeds.position(seedsBytes);
+
+        output = new BufferedOutputStream(Channels.newOutputStream(results));
+        seedsOutput = new BufferedWriter(Channels.newWriter(seeds, StandardCharsets.US_ASCII.newEncoder(), -1));
+        completedOutput = Files.newBufferedWriter(completedPath, StandardOpenOption.APPEND);
+
+        if (resultsBytes == 0) format.writeHeader(output, true);
+        if (seedsBytes == 0) seedsOutput.write("id seed");
+        output.flush();
+        seedsOutput.flush();
+    }
+
+    /**
+     * Opens the progress records of the results file {@code outputPath}, whose seeds are written to {@code seedsPath},
+     * truncating both files back to their last completed trial.
+     */
+    static TrialProgress open(@NotNull Path outputPath, @NotNull Path seedsPath, @NotNull TraceFormat format) throws IOException {
+        Files.createDirectories(outputPath.getParent());
+
+        String baseName = baseName(seedsPath);
+
+        return new TrialProgress(outputPath, seedsPath, completedPath(seedsPath),
+                seedsPath.resolveSibling(baseName + "_checkpoints"),
+                seedsPath.resolveSibling(baseName + "_summary.bin"),
+                seedsPath.resolveSibling(baseName + "_summary.txt"),
+                format);
+    }
+
+    /**
+     * @return the ids of the trials recorded as completed for the results file whose seeds are written to
+     * {@code seedsPath}, without opening it
+     */
+    static Set<String> completedIds(@NotNull Path seedsPath) {
+        Path completedPath = completedPath(seedsPath);
+        Set<String> completedIds = new HashSet<>();
+        if (!Files.exists(completedPath)) return completedIds;
+
+        try {
+            String[] lines = new String(Files.readAllBytes(completedPath), StandardCharsets.US_ASCII).split("\n", -1);
+            for (int i = 1; i < lines.length - 1; i++) completedIds.add(lines[i].split(" ")[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return completedIds;
+    }
+
+    private static String baseName(Path seedsPath) {
+        return seedsPath.getFileName().toString().replaceAll("_seeds\\.txt$", "");
+    }
+
+    private static Path completedPath(Path seedsPath) {
+        return seedsPath.resolveSibling(baseName(seedsPath) + "_completed.txt");
+    }
+
+    private static boolean isNotEmpty(Path path) throws IOException {
+        return Files.exists(path) && Files.size(path) > 0;
+    }
+
+    /**
+     * Deletes the checkpoints of completed trials and half written ones.
+     *
+     * @return the bytes of the results file holding rows of a checkpointed trial, which must be kept
+     */
+    private long dropStaleCheckpoints() throws IOException {
+        long keptBytes = 0;
+
+        try (DirectoryStream<Path> checkpoints = Files.newDirectoryStream(checkpointsPath)) {
+            for (Path checkpointPath : checkpoints) {
+                String fileName = checkpointPath.getFileName().toString();
+                String id = fileName.replaceAll("\\.bin$", "");
+
+                if (!fileName.endsWith(".bin") || completedIds.contains(id)) {
+                    Files.delete(checkpointPath);
+                    continue;
+                }
+
+                Checkpoint checkpoint = readCheckpoint(checkpointPath);
+                if (checkpoint == null) {
+                    Files.delete(checkpointPath);
+                } else {
+                    keptBytes = Math.max(keptBytes, checkpoint.outputBytes);
+                }
+            }
+        }
+
+        return keptBytes;
+    }
+
+    /**
+     * Puts a summary saved aside in place if its trial was recorded as completed, before the runner was interrupted.
+     *
+     * @return the summary of the {@code completedTrials} completed trials, or an empty one if it does not match them
+     */
+    private ResultsSummary loadSummary(int completedTrials) throws IOException {
+        Path partialPath = partialPath(summaryPath);
+        if (Files.exists(partialPath)) {
+            ResultsSummary partial = readSummary(partialPath);
+
+            if (partial != null && partial.trials() == completedTrials) {
+                Files.move(partialPath, summaryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.delete(partialPath);
+            }
+        }
+
+        ResultsSummary summary = Files.exists(summaryPath) ? readSummary(summaryPath) : null;
+        return summary != null && summary.trials() == completedTrials ? summary : new ResultsSummary();
+    }
+
+    private static ResultsSummary readSummary(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return ResultsSummary.read(input);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static Path partialPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".partial");
+    }
+
+    boolean isCompleted(@NotNull String id) {
+        return completedIds.contains(id);
+    }
+
+    /**
+     * @return the stream reports are appended to
+     */
+    OutputStream output() {
+        return output;
+    }
+
+    /**
+     * Writes out everything appended to {@link #output()} so far.
+     *
+     * @return the size of the results file
+     */
+    long flushOutput() throws IOException {
+        output.flush();
+        return results.position();
+    }
+
+    /**
+     * Records trial {@code id} as completed, once its report was appended to {@link #output()}, adds it to the summary
+     * and deletes its checkpoint.
+     */
+    void complete(@NotNull String id, long seed, @NotNull SimulatedAnnealingReport.Summary trialSummary) throws IOException {
+        summary.add(trialSummary);
+        Path partialSummaryPath = partialPath(summaryPath);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partialSummaryPath)))) {
+            summary.write(output);
+        }
+
+        long resultsBytes = flushOutput();
+
+        seedsOutput.write('\n' + id + ' ' + seed);
+        seedsOutput.flush();
+
+        completedOutput.write(id + ' ' + resultsBytes + ' ' + seeds.position() + '\n');
+        completedOutput.flush();
+        completedIds.add(id);
+
+        Files.move(partialSummaryPath, summaryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(checkpointPath(id));
+    }
+
+    private Path checkpointPath(String id) {
+        return checkpointsPath.resolve(id + ".bin");
+    }
+
+    /**
+     * @return the last checkpoint of trial {@code id}, or {@code null} if it has none
+     */
+    Checkpoint checkpoint(@NotNull String id) throws IOException {
+        Path checkpointPath = checkpointPath(id);
+        return Files.exists(checkpointPath) ? readCheckpoint(checkpointPath) : null;
+    }
+
+    private static Checkpoint readCheckpoint(Path checkpointPath) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointPath)))) {
+            if (input.readInt() != CHECKPOINT_MAGIC || input.readInt() != CHECKPOINT_VERSION) return null;
+
+            long seed = input.readLong();
+            long outputBytes = input.readLong();
+            byte[] output = new byte[input.readInt()];
+            input.readFully(output);
+
+            return new Checkpoint(seed, outputBytes, output, AnnealingCheckpoint.read(input));
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the checkpoint of trial {@code id}. It is written aside first, so an interrupted save leaves the
+     * previous checkpoint in place. Trials save their checkpoints concurrently, but never two for the same id.
+     */
+    void saveCheckpoint(@NotNull String id, @NotNull Checkpoint checkpoint) throws IOException {
+        Path checkpointPath = checkpointPath(id);
+        Path partialPath = checkpointsPath.resolve(id + ".partial");
+        Files.createDirectories(checkpointsPath);
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partialPath)))) {
+            output.writeInt(CHECKPOINT_MAGIC);
+            output.writeInt(CHECKPOINT_VERSION);
+            output.writeLong(checkpoint.seed);
+            output.writeLong(checkpoint.outputBytes);
+            output.writeInt(checkpoint.output.length);
+            output.write(checkpoint.output);
+            checkpoint.annealing.write(output);
+        }
+
+        Files.move(partialPath, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes out the summary as text, replacing the one of the last run.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            output.flush();
+            seedsOutput.flush();
+
+            Path partialTextPath = partialPath(summaryTextPath);
+            try (Writer writer = Files.newBufferedWriter(partialTextPath, StandardCharsets.US_ASCII)) {
+                summary.writeText(writer);
+            }
+            Files.move(partialTextPath, summaryTextPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            try {
+                results.close();
+            } finally {
+                try {
+                    seeds.close();
+                } finally {
+                    completedOutput.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Where a trial was when it was last checkpointed.
+     */
+    static final class Checkpoint {
+        /**
+         * Seed of the trial, recorded in the seeds file once it completes.
+         */
+        final long seed;
+
+        /**
+         * Size of the results file up to the last row the trial wrote there before the checkpoint, or {@code 0} if it
+         * wrote none, as happens when reports are buffered until the trial completes.
+         */
+        final long outputBytes;
+
+        /**
+         * Report of the trial written since, which is still to be appended to the results file.
+         */
+        final byte[] output;
+
+        final AnnealingCheckpoint annealing;
+
+        Checkpoint(long seed, long outputBytes, @NotNull byte[] output, @NotNull AnnealingCheckpoint annealing) {
+            this.seed = seed;
+            this.outputBytes = outputBytes;
+            this.output = output;
+            this.annealing = annealing;
+        }
+    }
+
+}
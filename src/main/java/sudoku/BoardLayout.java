@@ -0,0 +1,104 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Precomputed index tables for a board of a given square size, shared by every {@link Sudoku} of that size.
+ *
+ * Cells are numbered row by row, so the cell at row {@code x} and column {@code y} is {@code x * boardSize + y}.
+ * Units are numbered with rows first, then columns, then squares: row {@code r} is unit {@code r}, column {@code c}
+ * is unit {@code boardSize + c} and square {@code s} is unit {@code 2 * boardSize + s}.
+ */
+final class BoardLayout {
+
+    private static final ConcurrentMap<Integer, BoardLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    final int squareSize;
+    final int boardSize;
+    final int cellCount;
+
+    /**
+     * Row, column and square unit of every cell.
+     */
+    final int[] rowUnitOf;
+    final int[] columnUnitOf;
+    final int[] squareUnitOf;
+
+    /**
+     * Cells of every unit, indexed by unit number.
+     */
+    final int[][] unitCells;
+
+    /**
+     * Distinct cells sharing at least one unit with every cell, the cell itself excluded.
+     */
+    final int[][] peers;
+
+    private BoardLayout(int squareSize) {
+        this.squareSize = squareSize;
+        boardSize = squareSize * squareSize;
+        cellCount = boardSize * boardSize;
+
+        if (boardSize > Byte.MAX_VALUE) throw new IllegalArgumentException("squareSize is too big -> " + squareSize);
+
+        rowUnitOf = new int[cellCount];
+        columnUnitOf = new int[cellCount];
+        squareUnitOf = new int[cellCount];
+        unitCells = new int[3 * boardSize][boardSize];
+
+        int[] unitFill = new int[3 * boardSize];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int x = cell / boardSize;
+            int y = cell % boardSize;
+
+            rowUnitOf[cell] = x;
+            columnUnitOf[cell] = boardSize + y;
+            squareUnitOf[cell] = 2 * boardSize + (x / squareSize) * squareSize + y / squareSize;
+
+            unitCells[rowUnitOf[cell]][unitFill[rowUnitOf[cell]]++] = cell;
+            unitCells[columnUnitOf[cell]][unitFill[columnUnitOf[cell]]++] = cell;
+            unitCells[squareUnitOf[cell]][unitFill[squareUnitOf[cell]]++] = cell;
+        }
+
+        peers = new int[cellCount][];
+        boolean[] isPeer = new boolean[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int[] cellPeers = new int[3 * (boardSize - 1)];
+            int peerCount = 0;
+
+            for (int unit : new int[]{rowUnitOf[cell], columnUnitOf[cell], squareUnitOf[cell]}) {
+                for (int peer : unitCells[unit]) {
+                    if (peer == cell || isPeer[peer]) continue;
+
+                    isPeer[peer] = true;
+                    cellPeers[peerCount++] = peer;
+                }
+            }
+
+            peers[cell] = Arrays.copyOf(cellPeers, peerCount);
+            for (int peer : peers[cell]) isPeer[peer] = false;
+        }
+    }
+
+    /**
+     * @return the shared layout for boards of the given {@code squareSize}
+     */
+    static BoardLayout of(int squareSize) {
+        if (squareSize < 1) throw new IllegalArgumentException("squareSize cannot be < 1");
+
+        return LAYOUTS.computeIfAbsent(squareSize, BoardLayout::new);
+    }
+
+    int cell(int x, int y) {
+        return x * boardSize + y;
+    }
+
+    /**
+     * @return the square unit with the given row and column of squares
+     */
+    int squareUnit(int squareRowIndex, int squareColumnIndex) {
+        return 2 * boardSize + squareRowIndex * squareSize + squareColumnIndex;
+    }
+}
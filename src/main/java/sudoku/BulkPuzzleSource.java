@@ -0,0 +1,328 @@
+package sudoku;
+
+import com.sun.istack.internal.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Large files holding one puzzle per line, such as the Kaggle CSVs of a million 3x3 puzzles, read through memory
+ * mapped regions of the file.
+ *
+ * Every line starts with the givens of a puzzle, row by row, in one of two formats:
+ *
+ *      * Digits: one character per cell, {@code 1} to {@code 9} for fixed positions and {@code 0} or {@code .} for
+ *        empty ones, for boards of up to 9 values.
+ *      * Separated: one non negative integer per cell, separated by a single character and {@code 0} for empty ones.
+ *
+ * Anything following the last cell, like the solution column of the Kaggle CSVs, is ignored, as well as empty lines
+ * and lines not starting with a cell, like CSV headers. Puzzles are parsed straight from the mapped bytes into a
+ * reusable buffer, so no {@link String} is created per line.
+ */
+public final class BulkPuzzleSource implements AutoCloseable {
+
+    /**
+     * Bytes mapped at once. A region ends wherever it ends and is mapped again from the start of the line it cuts.
+     */
+    private static final long DEFAULT_REGION_BYTES = 1L << 30;
+
+    /**
+     * Ranges smaller than this are parsed by a single thread, as splitting them costs more than it saves.
+     */
+    private static final long MINIMUM_SPLIT_BYTES = 1 << 16;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final long regionBytes;
+    private final BoardLayout layout;
+
+    /**
+     * Separator between cells, or {@code 0} for digits.
+     */
+    private final char separator;
+
+    BulkPuzzleSource(@NotNull Path path, int squareSize, char separator, long regionBytes) {
+        this.path = path;
+        this.layout = BoardLayout.of(squareSize);
+        this.separator = separator;
+        this.regionBytes = regionBytes;
+
+        if (separator == 0 && layout.boardSize > 9) {
+            throw new IllegalArgumentException("Digit puzzles cannot hold more than 9 values");
+        }
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open file " + path, e);
+        }
+    }
+
+    /**
+     * @return a source of puzzles written as one digit per cell
+     */
+    @NotNull
+    public static BulkPuzzleSource digits(@NotNull Path path, int squareSize) {
+        return new BulkPuzzleSource(path, squareSize, (char) 0, DEFAULT_REGION_BYTES);
+    }
+
+    /**
+     * @return a source of puzzles written as integers separated by {@code separator}
+     */
+    @NotNull
+    public static BulkPuzzleSource separated(@NotNull Path path, int squareSize, char separator) {
+        if (separator == 0 || (separator >= '0' && separator <= '9')) {
+            throw new IllegalArgumentException("Invalid separator -> " + separator);
+        }
+
+        return new BulkPuzzleSource(path, squareSize, separator, DEFAULT_REGION_BYTES);
+    }
+
+    /**
+     * Receives the givens of every puzzle, as values of every cell numbered as in {@link BoardLayout}.
+     */
+    public interface GivensConsumer {
+        /**
+         * @param index  of the puzzle in the file, starting at {@code 0}
+         * @param givens of the puzzle, in a buffer that is overwritten by the next one
+         */
+        void accept(long index, @NotNull byte[] givens);
+    }
+
+    /**
+     * Parses every puzzle in file order without allocating anything per puzzle.
+     */
+    public void forEachGivens(@NotNull GivensConsumer consumer) {
+        Cursor cursor = new Cursor(0, size);
+
+        for (long index = 0; cursor.next(); index++) consumer.accept(index, cursor.givens);
+    }
+
+    /**
+     * @return every puzzle as a new {@link Sudoku}, in file order. The stream can be made parallel, in which case the
+     * file is split in byte ranges at line boundaries, each one parsed by the thread that solves its puzzles.
+     */
+    @NotNull
+    public Stream<Sudoku> stream() {
+        return StreamSupport.stream(new PuzzleSpliterator(new Cursor(0, size)), false);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses the puzzles of the lines starting in a byte range of the file. A line starting in the range is read to
+     * its end, even past the range.
+     */
+    private final class Cursor {
+        private long position;
+        private long end;
+
+        private MappedByteBuffer region;
+        private long regionStart;
+
+        final byte[] givens = new byte[layout.cellCount];
+
+        private Cursor(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        /**
+         * Parses the next puzzle into {@link #givens}.
+         *
+         * @return {@code false} once the range has no puzzle left
+         */
+        boolean next() {
+            while (position < end) {
+                long lineStart = position;
+                int lineEnd = lineEnd(lineStart);
+
+                position = regionStart + lineEnd + 1;
+                if (parse((int) (lineStart - regionStart), lineEnd)) return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * @return the index in {@link #region}, mapped so that it holds the whole line, of the line break ending the
+         * line starting at {@code lineStart}, or of the end of the file
+         */
+        private int lineEnd(long lineStart) {
+            if (region == null || lineStart < regionStart || lineStart >= regionStart + region.limit()) map(lineStart);
+
+            while (true) {
+                for (int i = (int) (lineStart - regionStart); i < region.limit(); i++) {
+                    if (region.get(i) == '\n') return i;
+                }
+
+                if (regionStart + region.limit() == size) return region.limit();
+                if (lineStart == regionStart) throw new RuntimeException("Line too long at byte " + lineStart + " of " + path);
+
+                map(lineStart);
+            }
+        }
+
+        private void map(long start) {
+            try {
+                region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionBytes, size - start));
+                regionStart = start;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to map file " + path, e);
+            }
+        }
+
+        /**
+         * @return whether the line between {@code start} and {@code end} in {@link #region} holds a puzzle, which is
+         * then stored in {@link #givens}
+         */
+        private boolean parse(int start, int end) {
+            if (start == end || !isCellStart(region.get(start))) return false;
+
+            return separator == 0 ? parseDigits(start, end) : parseSeparated(start, end);
+        }
+
+        private boolean isCellStart(byte character) {
+            return (character >= '0' && character <= '9') || (separator == 0 && character == '.');
+        }
+
+        private boolean parseDigits(int start, int end) {
+            if (end - start < givens.length) throw malformed(start);
+
+            for (int cell = 0; cell < givens.length; cell++) {
+                byte character = region.get(start + cell);
+
+                if (character == '.') {
+                    givens[cell] = 0;
+                } else if (character >= '0' && character - '0' <= layout.boardSize && character <= '9') {
+                    givens[cell] = (byte) (character - '0');
+                } else {
+                    throw malformed(start);
+                }
+            }
+
+            return true;
+        }
+
+        private boolean parseSeparated(int start, int end) {
+            int i = start;
+
+            for (int cell = 0; cell < givens.length; cell++) {
+                if (cell > 0) {
+                    if (i >= end || region.get(i) != separator) throw malformed(start);
+                    i++;
+                }
+
+                int value = 0;
+                int digits = 0;
+                for (; i < end && region.get(i) >= '0' && region.get(i) <= '9'; i++, digits++) {
+                    value = 10 * value + region.get(i) - '0';
+                }
+
+                if (digits == 0 || value > layout.boardSize) throw malformed(start);
+                givens[cell] = (byte) value;
+            }
+
+            return true;
+        }
+
+        private RuntimeException malformed(int start) {
+            return new RuntimeException("Malformed puzzle at byte " + (regionStart + start) + " of " + path);
+        }
+
+        /**
+         * Hands the second half of the remaining range, from its first line start on, to a new cursor.
+         *
+         * @return the new cursor, or {@code null} if the range is too small to be worth splitting
+         */
+        Cursor split() {
+            if (end - position < MINIMUM_SPLIT_BYTES) return null;
+
+            long splitStart = nextLineStart(position + (end - position) / 2);
+            if (splitStart >= end) return null;
+
+            Cursor second = new Cursor(splitStart, end);
+            end = splitStart;
+            return second;
+        }
+
+        /**
+         * @return the offset following the first line break at or after {@code offset}, or the file size if none
+         */
+        private long nextLineStart(long offset) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+            try {
+                for (long start = offset; start < size; start += buffer.limit()) {
+                    buffer.clear();
+                    channel.read(buffer, start);
+                    buffer.flip();
+
+                    for (int i = 0; i < buffer.limit(); i++) {
+                        if (buffer.get(i) == '\n') return start + i + 1;
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read file " + path, e);
+            }
+
+            return size;
+        }
+
+        long remainingBytes() {
+            return end - position;
+        }
+    }
+
+    private final class PuzzleSpliterator implements Spliterator<Sudoku> {
+        private final Cursor cursor;
+
+        private PuzzleSpliterator(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Sudoku> action) {
+            if (!cursor.next()) return false;
+
+            action.accept(Sudoku.ofGivens(layout, cursor.givens));
+            return true;
+        }
+
+        @Override
+        public Spliterator<Sudoku> trySplit() {
+            Cursor second = cursor.split();
+            return second == null ? null : new PuzzleSpliterator(second);
+        }
+
+        @Override
+        public long estimateSize() {
+            // Every line holds at least a byte per cell
+            return cursor.remainingBytes() / layout.cellCount + 1;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * Set of cells of a board, kept as a dense array along with the position of every cell in it, so that adding,
+ * removing and picking an element by index all take constant time.
+ */
+final class CellSet {
+
+    private final int[] cells;
+
+    /**
+     * Index of every cell in {@link #cells}, or {@code -1} if it is not in the set.
+     */
+    private final int[] positions;
+    private int size;
+
+    CellSet(int cellCount) {
+        cells = new int[cellCount];
+        positions = new int[cellCount];
+        Arrays.fill(positions, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the element at {@code index}, which must be lower than {@link #size()}. Indexes of the remaining
+     * elements change whenever one is removed.
+     */
+    int get(int index) {
+        return cells[index];
+    }
+
+    void set(int cell, boolean present) {
+        if (present) {
+            add(cell);
+        } else {
+            remove(cell);
+        }
+    }
+
+    void add(int cell) {
+        if (positions[cell] >= 0) return;
+
+        positions[cell] = size;
+        cells[size++] = cell;
+    }
+
+    void remove(int cell) {
+        int position = positions[cell];
+        if (position < 0) return;
+
+        // Move the last element into the hole
+        int last = cells[--size];
+        cells[position] = last;
+        positions[last] = position;
+        positions[cell] = -1;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) positions[cells[i]] = -1;
+        size = 0;
+    }
+
+}
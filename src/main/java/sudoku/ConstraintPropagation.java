@@ -0,0 +1,204 @@
+package sudoku;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Deduces the values forced by a set of givens, as a human solver would, by repeatedly applying two rules:
+ *
+ *      * Naked singles: a cell with a single candidate left takes it.
+ *      * Hidden singles: a value with a single candidate cell left in a row, column or square goes there.
+ *
+ * Candidates are kept as one bit set per cell, where bit {@code v - 1} stands for value {@code v}. Every set spans
+ * {@link #words} consecutive longs of {@link #candidates}, a single one for boards of up to 64 values.
+ */
+final class ConstraintPropagation {
+
+    private final BoardLayout layout;
+
+    /**
+     * Longs per candidate set.
+     */
+    private final int words;
+
+    /**
+     * Value of every cell, or {@code 0} while it is undecided.
+     */
+    final byte[] values;
+    private final long[] candidates;
+
+    private final int[] pending;
+    private int pendingCount;
+
+    ConstraintPropagation(@NotNull BoardLayout layout) {
+        this.layout = layout;
+        words = (layout.boardSize + Long.SIZE - 1) / Long.SIZE;
+        values = new byte[layout.cellCount];
+        candidates = new long[layout.cellCount * words];
+        pending = new int[layout.cellCount];
+    }
+
+    /**
+     * @return the bits of word {@code word} standing for an existing value
+     */
+    private long allValues(int word) {
+        int valuesInWord = layout.boardSize - word * Long.SIZE;
+        return valuesInWord >= Long.SIZE ? -1L : (1L << valuesInWord) - 1;
+    }
+
+    /**
+     * Resets the state to the given values and propagates them.
+     *
+     * @param givens value of every cell, {@code 0} for empty ones
+     *
+     * @return {@code false} if the givens contradict each other
+     */
+    boolean load(@NotNull byte[] givens) {
+        Arrays.fill(values, (byte) 0);
+        for (int word = 0; word < words; word++) {
+            long all = allValues(word);
+            for (int i = word; i < candidates.length; i += words) candidates[i] = all;
+        }
+        pendingCount = 0;
+
+        for (int cell = 0; cell < layout.cellCount; cell++) {
+            if (givens[cell] != 0 && !assign(cell, givens[cell])) return false;
+        }
+
+        return propagate();
+    }
+
+    /**
+     * @return whether every cell has a value
+     */
+    boolean isSolved() {
+        for (byte value : values) {
+            if (value == 0) return false;
+        }
+
+        return true;
+    }
+
+    boolean hasCandidate(int cell, int value) {
+        return (candidates[cell * words + (value - 1) / Long.SIZE] & 1L << (value - 1)) != 0;
+    }
+
+    void removeCandidate(int cell, int value) {
+        candidates[cell * words + (value - 1) / Long.SIZE] &= ~(1L << (value - 1));
+    }
+
+    int candidateCount(int cell) {
+        int count = 0;
+        for (int i = cell * words; i < (cell + 1) * words; i++) count += Long.bitCount(candidates[i]);
+
+        return count;
+    }
+
+    /**
+     * @return the smallest candidate of {@code cell} greater than {@code value}, or {@code 0} if there is none
+     */
+    int nextCandidate(int cell, int value) {
+        int word = value / Long.SIZE;
+        if (word == words) return 0;
+
+        long remaining = candidates[cell * words + word] & (-1L << value);
+        while (remaining == 0) {
+            if (++word == words) return 0;
+            remaining = candidates[cell * words + word];
+        }
+
+        return word * Long.SIZE + Long.numberOfTrailingZeros(remaining) + 1;
+    }
+
+    private boolean assign(int cell, int value) {
+        if (values[cell] == value) return true;
+        if (values[cell] != 0 || !hasCandidate(cell, value)) return false;
+
+        values[cell] = (byte) value;
+        Arrays.fill(candidates, cell * words, (cell + 1) * words, 0L);
+        candidates[cell * words + (value - 1) / Long.SIZE] = 1L << (value - 1);
+        pending[pendingCount++] = cell;
+
+        return true;
+    }
+
+    /**
+     * Applies both rules until neither of them decides any other cell.
+     *
+     * @return {@code false} if a contradiction was found
+     */
+    private boolean propagate() {
+        do {
+            if (!eliminateAssigned() || !assignHiddenSingles()) return false;
+        } while (pendingCount > 0);
+
+        return true;
+    }
+
+    /**
+     * Removes the value of every newly assigned cell from its peers, assigning naked singles along the way.
+     */
+    private boolean eliminateAssigned() {
+        while (pendingCount > 0) {
+            int cell = pending[--pendingCount];
+            int value = values[cell];
+            int word = (value - 1) / Long.SIZE;
+            long bit = 1L << (value - 1);
+
+            for (int peer : layout.peers[cell]) {
+                int i = peer * words + word;
+                if ((candidates[i] & bit) == 0) continue;
+
+                candidates[i] &= ~bit;
+                int remaining = candidateCount(peer);
+                if (remaining == 0) return false;
+
+                if (values[peer] == 0 && remaining == 1) {
+                    if (!assign(peer, nextCandidate(peer, 0))) return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Assigns hidden singles, leaving them pending for {@link #eliminateAssigned()}.
+     *
+     * @return {@code false} if a value has no candidate cell left in some unit
+     */
+    private boolean assignHiddenSingles() {
+        for (int[] unitCells : layout.unitCells) {
+            for (int word = 0; word < words; word++) {
+                long once = 0;
+                long more = 0;
+
+                for (int cell : unitCells) {
+                    long cellCandidates = candidates[cell * words + word];
+                    more |= once & cellCandidates;
+                    once |= cellCandidates;
+                }
+
+                if (once != allValues(word)) return false;
+
+                long hidden = once & ~more;
+                while (hidden != 0) {
+                    long bit = Long.lowestOneBit(hidden);
+                    hidden &= ~bit;
+
+                    for (int cell : unitCells) {
+                        if ((candidates[cell * words + word] & bit) == 0) continue;
+
+                        int value = word * Long.SIZE + Long.numberOfTrailingZeros(bit) + 1;
+                        if (values[cell] == 0 && !assign(cell, value)) return false;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,217 @@
+package sudoku;
+
+import com.sun.istack.internal.NotNull;
+
+/**
+ * Knuth's Algorithm X over dancing links, applied to the exact cover formulation of Sudoku.
+ *
+ * Every board of size N has 4 * N * N constraints, each of which must be covered exactly once: every cell holds a
+ * value, and every row, column and square holds every value. Every candidate value of a cell covers four of them.
+ * Links are kept in parallel int arrays and the search is iterative, so solving allocates nothing once the matrix is
+ * built and the board size does not bound the search depth through the call stack.
+ */
+final class DancingLinks {
+
+    private static final int ROOT = 0;
+
+    private final BoardLayout layout;
+
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+    private final int[] size;
+
+    /**
+     * Cell and value of the candidate every node belongs to.
+     */
+    private final int[] nodeCell;
+    private final byte[] nodeValue;
+
+    private int nodeCount;
+
+    /**
+     * @param candidates values every cell may hold
+     */
+    DancingLinks(@NotNull BoardLayout layout, @NotNull ConstraintPropagation candidates) {
+        this.layout = layout;
+
+        int boardSize = layout.boardSize;
+        int columns = 4 * layout.cellCount;
+        int rows = 0;
+        for (int cell = 0; cell < layout.cellCount; cell++) rows += candidates.candidateCount(cell);
+
+        int nodes = 1 + columns + 4 * rows;
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        column = new int[nodes];
+        size = new int[1 + columns];
+        nodeCell = new int[nodes];
+        nodeValue = new byte[nodes];
+
+        // Root and column headers form a circular list, every header starting as an empty vertical list
+        for (int header = 0; header <= columns; header++) {
+            left[header] = header == 0 ? columns : header - 1;
+            right[header] = header == columns ? 0 : header + 1;
+            up[header] = header;
+            down[header] = header;
+            column[header] = header;
+        }
+        nodeCount = columns + 1;
+
+        for (int cell = 0; cell < layout.cellCount; cell++) {
+            int row = layout.rowUnitOf[cell];
+            int col = layout.columnUnitOf[cell] - boardSize;
+            int square = layout.squareUnitOf[cell] - 2 * boardSize;
+
+            for (int value = candidates.nextCandidate(cell, 0); value != 0; value = candidates.nextCandidate(cell, value)) {
+                int valueIndex = value - 1;
+
+                addRow(cell, value,
+                        1 + cell,
+                        1 + layout.cellCount + row * boardSize + valueIndex,
+                        1 + 2 * layout.cellCount + col * boardSize + valueIndex,
+                        1 + 3 * layout.cellCount + square * boardSize + valueIndex);
+            }
+        }
+    }
+
+    private void addRow(int cell, int value, int... headers) {
+        int first = nodeCount;
+
+        for (int header : headers) {
+            int node = nodeCount++;
+
+            nodeCell[node] = cell;
+            nodeValue[node] = (byte) value;
+            column[node] = header;
+
+            // Append at the bottom of the column
+            up[node] = up[header];
+            down[node] = header;
+            down[up[header]] = node;
+            up[header] = node;
+            size[header]++;
+
+            // Append at the end of the row
+            left[node] = node == first ? node : nodeCount - 2;
+            right[node] = first;
+            right[left[node]] = node;
+            left[first] = node;
+        }
+    }
+
+    /**
+     * Searches for solutions, stopping once {@code limit} of them were found.
+     *
+     * @param solution receives the value of every cell of the first solution found
+     *
+     * @return the amount of solutions found, at most {@code limit}
+     */
+    int solve(@NotNull byte[] solution, int limit) {
+        return solve(solution, limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Searches for solutions like {@link #solve(byte[], int)}, giving up after {@code maximumSteps} candidates were
+     * tried. Proving that no solution is left can take exponentially long on sparse boards, so callers that can do
+     * without an answer bound it this way.
+     *
+     * @return the amount of solutions found, or {@code -1} if the search gave up before reaching {@code limit} of them
+     * or covering the whole search space
+     */
+    int solve(@NotNull byte[] solution, int limit, long maximumSteps) {
+        int[] choices = new int[layout.cellCount + 1];
+        int solutions = 0;
+        int level = 0;
+        long steps = 0;
+        boolean forward = true;
+
+        while (true) {
+            if (forward) {
+                if (++steps > maximumSteps) return -1;
+
+                if (right[ROOT] == ROOT) {
+                    if (++solutions == 1) {
+                        for (int i = 0; i < level; i++) solution[nodeCell[choices[i]]] = nodeValue[choices[i]];
+                    }
+                    if (solutions >= limit) return solutions;
+
+                    forward = false;
+                    continue;
+                }
+
+                int chosen = chooseColumn();
+                if (size[chosen] == 0) {
+                    forward = false;
+                    continue;
+                }
+
+                cover(chosen);
+                choices[level] = down[chosen];
+            } else {
+                if (level == 0) return solutions;
+
+                level--;
+                int node = choices[level];
+                for (int j = left[node]; j != node; j = left[j]) uncover(column[j]);
+                choices[level] = down[node];
+            }
+
+            int node = choices[level];
+            if (node == column[node]) {
+                // Every row of the column was tried, so give up on this level
+                uncover(node);
+                forward = false;
+                continue;
+            }
+
+            for (int j = right[node]; j != node; j = right[j]) cover(column[j]);
+            level++;
+            forward = true;
+        }
+    }
+
+    /**
+     * @return the column with the fewest rows left, which keeps the branching factor as low as possible
+     */
+    private int chooseColumn() {
+        int chosen = right[ROOT];
+
+        for (int header = right[chosen]; header != ROOT && size[chosen] > 1; header = right[header]) {
+            if (size[header] < size[chosen]) chosen = header;
+        }
+
+        return chosen;
+    }
+
+    private void cover(int header) {
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+
+        for (int i = down[header]; i != header; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int header) {
+        for (int i = up[header]; i != header; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+
+}
@@ -0,0 +1,61 @@
+package sudoku;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic {@link SudokuSolver} that first deduces every value forced by the fixed positions through
+ * {@link ConstraintPropagation}, then completes the board with an exact cover search over {@link DancingLinks}.
+ */
+public final class ExactSolver implements SudokuSolver {
+
+    private final SplittableRandom random;
+
+    /**
+     * @param random source of the values populating instances without a solution
+     */
+    public ExactSolver(@NotNull SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * @return a solution of {@code instance}, or a copy with its non fixed positions randomly populated if its fixed
+     * positions admit no solution
+     */
+    @NotNull
+    @Override
+    public Sudoku solve(@NotNull Sudoku instance) {
+        byte[] solution = new byte[instance.layout().cellCount];
+
+        if (search(instance, solution, 1) > 0) return instance.withBoard(solution);
+
+        Sudoku unsolved = instance.snapshot();
+        unsolved.populateNonFixed(random);
+
+        return unsolved;
+    }
+
+    /**
+     * @return the amount of solutions of {@code instance}, counting up to {@code limit}. A limit of {@code 2} is
+     * enough to tell whether the solution is unique.
+     */
+    public static int countSolutions(@NotNull Sudoku instance, int limit) {
+        return search(instance, new byte[instance.layout().cellCount], limit);
+    }
+
+    private static int search(Sudoku instance, byte[] solution, int limit) {
+        if (limit < 1) throw new IllegalArgumentException("limit cannot be < 1");
+
+        ConstraintPropagation propagation = new ConstraintPropagation(instance.layout());
+        if (!propagation.load(instance.fixedValues())) return 0;
+
+        if (propagation.isSolved()) {
+            System.arraycopy(propagation.values, 0, solution, 0, solution.length);
+            return 1;
+        }
+
+        return new DancingLinks(instance.layout(), propagation).solve(solution, limit);
+    }
+
+}
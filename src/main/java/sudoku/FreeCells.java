@@ -0,0 +1,62 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Non fixed cells of an instance, grouped the ways neighbor strategies pick them, so that strategies can draw valid
+ * cells directly instead of rejecting fixed ones. Depends on the fixed positions only, which never change, so an
+ * instance and its snapshots share it.
+ */
+final class FreeCells {
+
+    /**
+     * Every non fixed cell.
+     */
+    final int[] cells;
+
+    /**
+     * Non fixed cells of every square, indexed by square number, i.e. unit minus {@code 2 * boardSize}.
+     */
+    final int[][] squareCells;
+
+    /**
+     * Non fixed cells sharing their square with another non fixed cell, the only ones an in-square swap can move.
+     */
+    final int[] swappableCells;
+    final boolean[] swappable;
+
+    FreeCells(BoardLayout layout, BitSet fixedPositions) {
+        int boardSize = layout.boardSize;
+
+        cells = new int[layout.cellCount - fixedPositions.cardinality()];
+        int cellCount = 0;
+        for (int cell = fixedPositions.nextClearBit(0); cell < layout.cellCount; cell = fixedPositions.nextClearBit(cell + 1)) {
+            cells[cellCount++] = cell;
+        }
+
+        squareCells = new int[boardSize][];
+        swappable = new boolean[layout.cellCount];
+        int[] swappableBuffer = new int[cells.length];
+        int swappableCount = 0;
+
+        for (int square = 0; square < boardSize; square++) {
+            int[] freeSquareCells = new int[boardSize];
+            int freeCount = 0;
+
+            for (int cell : layout.unitCells[2 * boardSize + square]) {
+                if (!fixedPositions.get(cell)) freeSquareCells[freeCount++] = cell;
+            }
+            squareCells[square] = Arrays.copyOf(freeSquareCells, freeCount);
+
+            if (freeCount < 2) continue;
+            for (int cell : squareCells[square]) {
+                swappable[cell] = true;
+                swappableBuffer[swappableCount++] = cell;
+            }
+        }
+
+        swappableCells = Arrays.copyOf(swappableBuffer, swappableCount);
+    }
+
+}
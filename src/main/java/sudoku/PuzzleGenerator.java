@@ -0,0 +1,270 @@
+package sudoku;
+
+import com.sun.istack.internal.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates puzzles with a unique solution.
+ *
+ * Every puzzle starts from a full valid grid, obtained by shuffling the rows, columns and values of a pattern grid
+ * in ways that keep every row, column and square valid. Clues are then removed in random order, each one only if
+ * the solution provably stays unique, until the target amount of clues is reached or no clue left can be removed.
+ * Proofs taking more than {@link #MAXIMUM_SEARCH_STEPS} steps of the exact cover search are given up on and their
+ * clue kept, which bounds the generation time of big, sparse boards at the cost of a few extra clues.
+ *
+ * Whole datasets are written as a single file holding one {@code puzzle,solution} line per puzzle, which
+ * {@link BulkPuzzleSource} reads directly. Boards of up to 9 values use one digit per cell, bigger ones values
+ * separated by {@code ' '}.
+ */
+public final class PuzzleGenerator {
+
+    private static final long MAXIMUM_SEARCH_STEPS = 1_000;
+
+    private final BoardLayout layout;
+    private final ConstraintPropagation propagation;
+
+    /**
+     * Scratch buffers reused by every puzzle.
+     */
+    private final int[] rows;
+    private final int[] columns;
+    private final int[] values;
+    private final int[] cells;
+    private final byte[] unused;
+    private final boolean[] seen;
+
+    public PuzzleGenerator(int squareSize) {
+        layout = BoardLayout.of(squareSize);
+        propagation = new ConstraintPropagation(layout);
+
+        rows = new int[layout.boardSize];
+        columns = new int[layout.boardSize];
+        values = new int[layout.boardSize];
+        cells = new int[layout.cellCount];
+        unused = new byte[layout.cellCount];
+        seen = new boolean[layout.boardSize + 1];
+    }
+
+    /**
+     * Generates a puzzle with a unique solution.
+     *
+     * @param clues    amount of clues to stop at. Puzzles from which no clue can be removed keep more of them.
+     * @param givens   receives the value of every cell of the puzzle, {@code 0} for empty ones
+     * @param solution receives the value of every cell of its solution
+     *
+     * @return the amount of clues of the puzzle
+     */
+    public int generate(int clues, @NotNull SplittableRandom random, @NotNull byte[] givens, @NotNull byte[] solution) {
+        fillGrid(random, solution);
+        System.arraycopy(solution, 0, givens, 0, givens.length);
+
+        for (int cell = 0; cell < cells.length; cell++) cells[cell] = cell;
+        shuffle(cells, random);
+
+        int remaining = layout.cellCount;
+        for (int i = 0; i < cells.length && remaining > clues; i++) {
+            int cell = cells[i];
+            byte value = givens[cell];
+
+            givens[cell] = 0;
+            if (hasOtherSolution(givens, cell, value)) {
+                givens[cell] = value;
+            } else {
+                remaining--;
+            }
+        }
+
+        return remaining;
+    }
+
+    /**
+     * Fills {@code grid} with the pattern grid, in which row {@code r} is the previous one shifted by a square, or by
+     * a single cell at the start of every band, with its bands, rows within bands, stacks, columns within stacks and
+     * values randomly permuted and transposed half of the time.
+     */
+    private void fillGrid(SplittableRandom random, byte[] grid) {
+        permuteLines(rows, random);
+        permuteLines(columns, random);
+        for (int i = 0; i < values.length; i++) values[i] = i + 1;
+        shuffle(values, random);
+        boolean transposed = random.nextBoolean();
+
+        int squareSize = layout.squareSize;
+        int boardSize = layout.boardSize;
+        for (int x = 0; x < boardSize; x++) {
+            for (int y = 0; y < boardSize; y++) {
+                int row = rows[transposed ? y : x];
+                int column = columns[transposed ? x : y];
+                int pattern = (squareSize * (row % squareSize) + row / squareSize + column) % boardSize;
+
+                grid[layout.cell(x, y)] = (byte) values[pattern];
+            }
+        }
+    }
+
+    /**
+     * Fills {@code lines} with a random order of the rows, or columns, that keeps them in their bands.
+     */
+    private void permuteLines(int[] lines, SplittableRandom random) {
+        int squareSize = layout.squareSize;
+        int[] bands = new int[squareSize];
+        int[] offsets = new int[squareSize];
+
+        for (int i = 0; i < squareSize; i++) bands[i] = i;
+        shuffle(bands, random);
+
+        for (int band = 0; band < squareSize; band++) {
+            for (int i = 0; i < squareSize; i++) offsets[i] = i;
+            shuffle(offsets, random);
+
+            for (int i = 0; i < squareSize; i++) lines[band * squareSize + i] = bands[band] * squareSize + offsets[i];
+        }
+    }
+
+    /**
+     * @return whether {@code givens} may have a solution in which {@code cell} does not hold {@code value}, which is
+     * assumed when the search gives up. Since the givens had a unique solution holding it before {@code cell} was
+     * emptied, this tells whether emptying it broke the uniqueness, with a search for a single solution rather than a
+     * count up to two.
+     */
+    private boolean hasOtherSolution(byte[] givens, int cell, int value) {
+        if (isNakedSingle(givens, cell)) return false;
+        if (!propagation.load(givens)) return false;
+        if (propagation.values[cell] == value) return false;
+
+        propagation.removeCandidate(cell, value);
+        if (propagation.candidateCount(cell) == 0) return false;
+
+        return new DancingLinks(layout, propagation).solve(unused, 1, MAXIMUM_SEARCH_STEPS) != 0;
+    }
+
+    /**
+     * @return whether the givens among the peers of {@code cell} hold every value but one, which forces it without
+     * propagating the whole board. Most clues of dense boards are removed through this shortcut.
+     */
+    private boolean isNakedSingle(byte[] givens, int cell) {
+        Arrays.fill(seen, false);
+
+        int distinct = 0;
+        for (int peer : layout.peers[cell]) {
+            if (givens[peer] != 0 && !seen[givens[peer]]) {
+                seen[givens[peer]] = true;
+                distinct++;
+            }
+        }
+
+        return distinct == layout.boardSize - 1;
+    }
+
+    private static void shuffle(int[] values, SplittableRandom random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int buffer = values[i];
+            values[i] = values[j];
+            values[j] = buffer;
+        }
+    }
+
+    /**
+     * Generates {@code count} puzzles on up to {@code parallelism} threads and writes them to {@code datasetPath}.
+     *
+     * Every puzzle gets its own random source, seeded from {@code seed} in file order, so the same seed produces the
+     * same file whatever the parallelism. At most {@code 2 * parallelism} puzzles are generated ahead of the one being
+     * written.
+     */
+    public static void writeDataset(@NotNull Path datasetPath,
+                                    int squareSize,
+                                    int clues,
+                                    int count,
+                                    long seed,
+                                    int parallelism) {
+        if (count < 0) throw new IllegalArgumentException("count cannot be < 0");
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism cannot be < 1");
+
+        SplittableRandom seeds = new SplittableRandom(seed);
+        ThreadLocal<PuzzleGenerator> generators = ThreadLocal.withInitial(() -> new PuzzleGenerator(squareSize));
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        int submitted = 0;
+
+        try (OutputStream output = Files.newOutputStream(datasetPath)) {
+            output.write("puzzle,solution".getBytes());
+
+            for (int i = 0; i < count; i++) {
+                while (submitted < count && pending.size() < 2 * parallelism) {
+                    long puzzleSeed = seeds.nextLong();
+                    pending.add(executor.submit(() -> generators.get().line(clues, new SplittableRandom(puzzleSeed))));
+                    submitted++;
+                }
+
+                output.write(pending.remove().get());
+            }
+        } catch (IOException | ExecutionException e) {
+            throw new RuntimeException("Failed to write dataset " + datasetPath, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return a new puzzle as a dataset line, starting with its line break
+     */
+    private byte[] line(int clues, SplittableRandom random) {
+        byte[] givens = new byte[layout.cellCount];
+        byte[] solution = new byte[layout.cellCount];
+        generate(clues, random, givens, solution);
+
+        ByteArrayOutputStream line = new ByteArrayOutputStream(4 * layout.cellCount);
+        line.write('\n');
+        writeBoard(line, givens);
+        line.write(',');
+        writeBoard(line, solution);
+
+        return line.toByteArray();
+    }
+
+    private void writeBoard(ByteArrayOutputStream line, byte[] board) {
+        for (int cell = 0; cell < board.length; cell++) {
+            if (layout.boardSize > 9 && cell > 0) line.write(' ');
+            if (board[cell] >= 100) line.write('0' + board[cell] / 100);
+            if (board[cell] >= 10) line.write('0' + board[cell] / 10 % 10);
+            line.write('0' + board[cell] % 10);
+        }
+    }
+
+    /**
+     * Usage: {@code PuzzleGenerator <dataset> <square size> <clues> <count>}. Puzzles are generated on
+     * {@code sudoku.parallelism} threads, all available processors by default, from the {@code sudoku.seed} seed.
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: PuzzleGenerator <dataset> <square size> <clues> <count>");
+            System.exit(1);
+        }
+
+        writeDataset(Paths.get(args[0]),
+                Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]),
+                Long.getLong("sudoku.seed", System.nanoTime()),
+                Integer.getInteger("sudoku.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+}
@@ -1,7 +1,6 @@
 package sudoku;
 
 import com.sun.istack.internal.NotNull;
-import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -9,115 +8,202 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Represents a square Sudoku instance.
+ *
+ * The board is stored as a flat array of cells numbered row by row, as described in {@link BoardLayout}.
  */
 public final class Sudoku {
 
     private final int squareSize;
     private final int boardSize;
-    private final int[][] board;
-    private final boolean[][] boardFixedPositions;
+    private final BoardLayout layout;
+    private final byte[] board;
 
-    private Sudoku(int squareSize, int fixedQuantity) {
+    /**
+     * Cells whose value is given by the instance. Never modified once the instance is created, so it is shared
+     * between an instance and its snapshots.
+     */
+    private final BitSet boardFixedPositions;
+
+    /**
+     * How many times each value appears in each unit, at {@code unit * (boardSize + 1) + value}. Value {@code 0} is
+     * included so that boards which have not been populated yet are accounted for as well.
+     */
+    private final int[] unitValueCounts;
+
+    /**
+     * Current result of {@link #repetitions()}, kept up to date along with {@link #unitValueCounts}.
+     */
+    private int repetitions;
+
+    /**
+     * Built the first time a neighbor strategy needs it.
+     */
+    private FreeCells freeCells;
+
+    /**
+     * Swappable cells, as defined by {@link FreeCells#swappableCells}, whose value is repeated in their row, column
+     * or square. Only tracked once {@link NeighborStrategy#CONFLICT_SWAP_SQUARE} is first used on this instance, and
+     * kept up to date by {@link #setValue(int, int)} from then on.
+     */
+    private CellSet conflictedCells;
+
+    /**
+     * Squares drawn by {@link NeighborStrategy#RANDOM_SWAP_SQUARE} and rejected for lacking two distinct non fixed
+     * cells, since {@link #takeRejectedProposals()} was last called.
+     */
+    private long rejectedProposals;
+
+    private Sudoku(int squareSize, int fixedQuantity, SplittableRandom random) {
         if (squareSize < 1) throw new IllegalArgumentException("squareSize cannot be < 1");
         if (fixedQuantity < 0) throw new IllegalArgumentException("fixedQuantity cannot be < 0");
 
         this.squareSize = squareSize;
-        boardSize = squareSize * squareSize;
-        board = new int[boardSize][boardSize];
-        boardFixedPositions = new boolean[boardSize][boardSize];
-
-        initializeBoard(fixedQuantity);
+        layout = BoardLayout.of(squareSize);
+        boardSize = layout.boardSize;
+        board = new byte[layout.cellCount];
+        boardFixedPositions = new BitSet(layout.cellCount);
+        unitValueCounts = new int[3 * boardSize * (boardSize + 1)];
+
+        initializeBoard(fixedQuantity, random);
+        countValues();
     }
 
-    private Sudoku(int[][] board, boolean[][] boardFixedPositions) {
-        this.boardSize = board.length;
-        this.squareSize = (int) Math.sqrt(boardSize);
+    private Sudoku(BoardLayout layout, byte[] board, BitSet boardFixedPositions) {
+        this.layout = layout;
+        this.squareSize = layout.squareSize;
+        this.boardSize = layout.boardSize;
         this.board = board;
         this.boardFixedPositions = boardFixedPositions;
+        unitValueCounts = new int[3 * boardSize * (boardSize + 1)];
+
+        countValues();
     }
 
-    private void initializeBoard(int fixedQuantity) {
-        fillBoard();
-        markFixedPositions(fixedQuantity);
-        stripNonFixedValues();
+    private Sudoku(Sudoku original) {
+        layout = original.layout;
+        squareSize = original.squareSize;
+        boardSize = original.boardSize;
+        board = original.board.clone();
+        boardFixedPositions = original.boardFixedPositions;
+        unitValueCounts = original.unitValueCounts.clone();
+        repetitions = original.repetitions;
+        freeCells = original.freeCells;
     }
 
-    private void fillBoard() {
-        for (int squareRowIndex = 0; squareRowIndex < squareSize; squareRowIndex++) {
-            for (int squareColumnIndex = 0; squareColumnIndex < squareSize; squareColumnIndex++) {
-                fillBoardSquare(squareRowIndex * squareSize, squareColumnIndex * squareSize);
-            }
-        }
+    private void initializeBoard(int fixedQuantity, SplittableRandom random) {
+        fillBoard(random);
+        markFixedPositions(fixedQuantity, random);
+        stripNonFixedValues();
     }
 
-    private void fillBoardSquare(int squareRowIndex, int squareColumnIndex) {
-        LinkedList<Integer> shuffledValues = new LinkedList<>();
-        for (int i = 1; i <= boardSize; i++) shuffledValues.add(i);
-        Collections.shuffle(shuffledValues);
+    private void fillBoard(SplittableRandom random) {
+        int[] values = new int[boardSize];
 
-        for (int x = squareRowIndex; x < squareRowIndex + squareSize; x++) {
-            for (int y = squareColumnIndex; y < squareColumnIndex + squareSize; y++) {
-                int value = shuffledValues.pop();
+        for (int squareUnit = 2 * boardSize; squareUnit < 3 * boardSize; squareUnit++) {
+            int[] squareCells = layout.unitCells[squareUnit];
 
-                board[x][y] = value;
-            }
+            for (int i = 0; i < boardSize; i++) values[i] = i + 1;
+            shuffle(values, boardSize, random);
+
+            for (int i = 0; i < boardSize; i++) board[squareCells[i]] = (byte) values[i];
         }
     }
 
-    private void markFixedPositions(int fixedQuantity) {
+    private void markFixedPositions(int fixedQuantity, SplittableRandom random) {
         int i = 0;
         while (i < fixedQuantity) {
-            Random random = new Random();
-            Pair<Integer, Integer> randomPosition = Pair.of(random.nextInt(boardSize), random.nextInt(boardSize));
-            int x = randomPosition.getLeft();
-            int y = randomPosition.getRight();
+            int cell = random.nextInt(layout.cellCount);
 
-            if (boardFixedPositions[x][y]) continue;
+            if (boardFixedPositions.get(cell)) continue;
 
-            boardFixedPositions[x][y] = true;
+            boardFixedPositions.set(cell);
             i++;
         }
     }
 
     private void stripNonFixedValues() {
-        for (int x = 0; x < boardSize; x++) {
-            for (int y = 0; y < boardSize; y++) {
-                if (!boardFixedPositions[x][y]) board[x][y] = 0;
-            }
+        for (int cell = 0; cell < layout.cellCount; cell++) {
+            if (!boardFixedPositions.get(cell)) board[cell] = 0;
         }
     }
 
     // TODO: Document
-    public void populateNonFixed() {
-        for (int squareRowIndex = 0; squareRowIndex < squareSize; squareRowIndex++) {
-            for (int squareColumnIndex = 0; squareColumnIndex < squareSize; squareColumnIndex++) {
-                populateNonFixedInSquare(squareRowIndex * squareSize, squareColumnIndex * squareSize);
-            }
+    public void populateNonFixed(@NotNull SplittableRandom random) {
+        int[] values = new int[boardSize];
+        boolean[] present = new boolean[boardSize + 1];
+
+        for (int squareUnit = 2 * boardSize; squareUnit < 3 * boardSize; squareUnit++) {
+            populateNonFixedInSquare(layout.unitCells[squareUnit], values, present, random);
         }
+
+        countValues();
     }
 
-    // TODO: Document
-    private void populateNonFixedInSquare(int squareRowIndex, int squareColumnIndex) {
-        LinkedList<Integer> shuffledValues = new LinkedList<>();
-        for (int i = 1; i <= boardSize; i++) shuffledValues.add(i);
-        Collections.shuffle(shuffledValues);
-
-        for (int x = squareRowIndex; x < squareRowIndex + squareSize; x++) {
-            for (int y = squareColumnIndex; y < squareColumnIndex + squareSize; y++) {
-                if (boardFixedPositions[x][y]) shuffledValues.remove((Integer)board[x][y]);
-            }
+    /**
+     * Fills the non fixed cells of a square with a random permutation of the values its fixed cells are missing.
+     *
+     * @param values  scratch buffer of {@code boardSize} slots
+     * @param present scratch buffer of {@code boardSize + 1} slots
+     */
+    private void populateNonFixedInSquare(int[] squareCells, int[] values, boolean[] present, SplittableRandom random) {
+        Arrays.fill(present, false);
+        for (int cell : squareCells) {
+            if (boardFixedPositions.get(cell)) present[board[cell]] = true;
         }
 
-        for (int x = squareRowIndex; x < squareRowIndex + squareSize; x++) {
-            for (int y = squareColumnIndex; y < squareColumnIndex + squareSize; y++) {
-                if (!boardFixedPositions[x][y]) board[x][y] = shuffledValues.pop();
-            }
+        int missing = 0;
+        for (int value = 1; value <= boardSize; value++) {
+            if (!present[value]) values[missing++] = value;
         }
+        shuffle(values, missing, random);
+
+        int next = 0;
+        for (int cell : squareCells) {
+            if (!boardFixedPositions.get(cell)) board[cell] = (byte) values[next++];
+        }
+    }
+
+    private static void shuffle(int[] values, int length, SplittableRandom random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int buffer = values[i];
+            values[i] = values[j];
+            values[j] = buffer;
+        }
+    }
+
+    /**
+     * Deduces the values forced by the fixed positions, by repeatedly assigning naked and hidden singles in every row,
+     * column and square, so that later searches only have to deal with the positions left undecided.
+     *
+     * @return a new instance in which every deduced position is fixed as well, with its non fixed positions empty.
+     * If the fixed positions contradict each other nothing can be deduced and this instance is returned.
+     */
+    public Sudoku propagateConstraints() {
+        ConstraintPropagation propagation = new ConstraintPropagation(layout);
+        if (!propagation.load(fixedValues())) return this;
+
+        byte[] propagatedBoard = new byte[layout.cellCount];
+        BitSet propagatedFixedPositions = new BitSet(layout.cellCount);
+
+        for (int cell = 0; cell < layout.cellCount; cell++) {
+            if (propagation.values[cell] == 0) continue;
+
+            propagatedBoard[cell] = propagation.values[cell];
+            propagatedFixedPositions.set(cell);
+        }
+
+        return new Sudoku(layout, propagatedBoard, propagatedFixedPositions);
+    }
+
+    /**
+     * @return the amount of fixed positions of this instance
+     */
+    public int fixedPositionsCount() {
+        return boardFixedPositions.cardinality();
     }
 
     /**
@@ -127,164 +213,453 @@ public final class Sudoku {
         return squareSize;
     }
 
+    BoardLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return the value of every fixed position, {@code 0} for the rest
+     */
+    byte[] fixedValues() {
+        byte[] fixedValues = new byte[layout.cellCount];
+
+        for (int cell = boardFixedPositions.nextSetBit(0); cell >= 0; cell = boardFixedPositions.nextSetBit(cell + 1)) {
+            fixedValues[cell] = board[cell];
+        }
+
+        return fixedValues;
+    }
+
+    /**
+     * @return a new instance sharing this instance's fixed positions, with {@code board} as its values
+     */
+    Sudoku withBoard(@NotNull byte[] board) {
+        return new Sudoku(layout, board, boardFixedPositions);
+    }
+
+    /**
+     * @return a copy of the value of every cell, row by row
+     */
+    public byte[] values() {
+        return board.clone();
+    }
+
+    /**
+     * @param values of every cell, row by row, such as returned by {@link #values()}
+     *
+     * @return a new instance sharing this instance's fixed positions, with a copy of {@code values} as its values
+     *
+     * @throws IllegalArgumentException if {@code values} does not fit the board or changes a fixed position
+     */
+    public Sudoku withValues(@NotNull byte[] values) {
+        if (values.length != layout.cellCount) {
+            throw new IllegalArgumentException("Expected " + layout.cellCount + " values, got " + values.length);
+        }
+
+        for (int cell = 0; cell < layout.cellCount; cell++) {
+            if (values[cell] < 0 || values[cell] > boardSize) {
+                throw new IllegalArgumentException("Invalid value " + values[cell] + " at cell " + cell);
+            }
+            if (boardFixedPositions.get(cell) && values[cell] != board[cell]) {
+                throw new IllegalArgumentException("Fixed position " + cell + " cannot change");
+            }
+        }
+
+        return new Sudoku(layout, values.clone(), boardFixedPositions);
+    }
+
+    /**
+     * Reads and resets the amount of draws {@link NeighborStrategy#RANDOM_SWAP_SQUARE} proposals of this board
+     * rejected, which grows as fixed cells crowd its squares. Copies start counting from zero.
+     *
+     * @return the draws rejected since the last call
+     */
+    public long takeRejectedProposals() {
+        long rejected = rejectedProposals;
+        rejectedProposals = 0;
+
+        return rejected;
+    }
+
     /**
      * @return the amount of repetitions present in this {@link Sudoku}
      */
     public int repetitions() {
-        int repetitions = 0;
+        return repetitions;
+    }
 
-        for (int rowIndex = 0; rowIndex < boardSize; rowIndex++) {
-            for (int columnIndex = 0; columnIndex < boardSize; columnIndex++) {
-                int current = board[rowIndex][columnIndex];
+    /**
+     * Rebuilds {@link #unitValueCounts} and {@link #repetitions} from scratch. Only needed when the whole board changes;
+     * single cells are kept in sync by {@link #setValue(int, int)}.
+     */
+    private void countValues() {
+        Arrays.fill(unitValueCounts, 0);
+        repetitions = 0;
+
+        for (int cell = 0; cell < layout.cellCount; cell++) {
+            addValue(cell, board[cell]);
+        }
+
+        if (conflictedCells != null) recountConflictedCells();
+    }
+
+    private void setValue(int cell, int newValue) {
+        int oldValue = board[cell];
+
+        removeValue(cell, oldValue);
+        addValue(cell, newValue);
+        board[cell] = (byte) newValue;
+
+        if (conflictedCells != null && oldValue != newValue) {
+            updateConflicted(cell);
+            updateConflictedInUnit(layout.rowUnitOf[cell], oldValue, newValue);
+            updateConflictedInUnit(layout.columnUnitOf[cell], oldValue, newValue);
+            updateConflictedInUnit(layout.squareUnitOf[cell], oldValue, newValue);
+        }
+    }
+
+    private FreeCells freeCells() {
+        if (freeCells == null) freeCells = new FreeCells(layout, boardFixedPositions);
+        return freeCells;
+    }
+
+    private void trackConflictedCells() {
+        if (conflictedCells != null) return;
+
+        conflictedCells = new CellSet(layout.cellCount);
+        recountConflictedCells();
+    }
+
+    private void recountConflictedCells() {
+        conflictedCells.clear();
+        for (int cell : freeCells().swappableCells) {
+            if (isConflicting(cell)) conflictedCells.add(cell);
+        }
+    }
+
+    private void updateConflicted(int cell) {
+        if (freeCells.swappable[cell]) conflictedCells.set(cell, isConflicting(cell));
+    }
+
+    /**
+     * Updates the cells of {@code unit} whose conflict status changed when one of its cells went from {@code oldValue}
+     * to {@code newValue}. A cell stops conflicting through a unit when the count of its value there drops to 1, and
+     * starts when it reaches 2, so the unit is only scanned when one of those thresholds is crossed.
+     */
+    private void updateConflictedInUnit(int unit, int oldValue, int newValue) {
+        boolean oldValueLeftAlone = unitValueCounts[countIndex(unit, oldValue)] == 1;
+        boolean newValueRepeated = unitValueCounts[countIndex(unit, newValue)] == 2;
 
-                repetitions += countRowRepetitions(current, rowIndex, columnIndex);
-                repetitions += countColumnRepetitions(current, rowIndex, columnIndex);
-                repetitions += countSquareRepetitions(current, rowIndex, columnIndex);
+        if (!oldValueLeftAlone && !newValueRepeated) return;
+
+        for (int cell : layout.unitCells[unit]) {
+            if ((oldValueLeftAlone && board[cell] == oldValue) || (newValueRepeated && board[cell] == newValue)) {
+                updateConflicted(cell);
             }
         }
+    }
 
-        return repetitions;
+    /*
+     * A value appearing c times in a unit makes every one of those cells repeat it c - 1 times, so adding one more
+     * occurrence adds 2 * c repetitions and removing one takes away 2 * (c - 1).
+     */
+
+    private void addValue(int cell, int value) {
+        repetitions += 2 * unitValueCounts[countIndex(layout.rowUnitOf[cell], value)]++;
+        repetitions += 2 * unitValueCounts[countIndex(layout.columnUnitOf[cell], value)]++;
+        repetitions += 2 * unitValueCounts[countIndex(layout.squareUnitOf[cell], value)]++;
+    }
+
+    private void removeValue(int cell, int value) {
+        repetitions -= 2 * --unitValueCounts[countIndex(layout.rowUnitOf[cell], value)];
+        repetitions -= 2 * --unitValueCounts[countIndex(layout.columnUnitOf[cell], value)];
+        repetitions -= 2 * --unitValueCounts[countIndex(layout.squareUnitOf[cell], value)];
+    }
+
+    private int countIndex(int unit, int value) {
+        return unit * (boardSize + 1) + value;
     }
 
-    private int countRowRepetitions(int target, int rowIndex, int columnIndex) {
-        int rowRepetitions = 0;
+    /**
+     * @return whether the value at position (x, y) is repeated in its row, column or square
+     */
+    public boolean isConflicting(int x, int y) {
+        return isConflicting(layout.cell(x, y));
+    }
 
-        for (int i = columnIndex - 1; i >= 0; i--) rowRepetitions += board[rowIndex][i] == target ? 1 : 0;
-        for (int i = columnIndex + 1; i < boardSize; i++) rowRepetitions += board[rowIndex][i] == target ? 1 : 0;
+    private boolean isConflicting(int cell) {
+        int value = board[cell];
 
-        return rowRepetitions;
+        return unitValueCounts[countIndex(layout.rowUnitOf[cell], value)] > 1
+                || unitValueCounts[countIndex(layout.columnUnitOf[cell], value)] > 1
+                || unitValueCounts[countIndex(layout.squareUnitOf[cell], value)] > 1;
     }
 
-    private int countColumnRepetitions(int target, int rowIndex, int columnIndex) {
-        int columnRepetitions = 0;
+    /**
+     * @return the positions, as {@code x * boardSize + y}, whose value is repeated in their row, column or square
+     */
+    public int[] conflictingCells() {
+        int[] conflictingCells = new int[layout.cellCount];
+        int conflictingCount = 0;
 
-        for (int i = rowIndex - 1; i >= 0; i--) columnRepetitions += board[i][columnIndex] == target ? 1 : 0;
-        for (int i = rowIndex + 1; i < boardSize; i++) columnRepetitions += board[i][columnIndex] == target ? 1 : 0;
+        for (int cell = 0; cell < layout.cellCount; cell++) {
+            if (isConflicting(cell)) conflictingCells[conflictingCount++] = cell;
+        }
+
+        return Arrays.copyOf(conflictingCells, conflictingCount);
+    }
 
-        return columnRepetitions;
+    /**
+     * Calculates how {@link #repetitions()} would change if the values at positions (x1, y1) and (x2, y2) were
+     * swapped. Only the value counts of the rows, columns and squares of both positions are read and the board is left
+     * untouched.
+     *
+     * @return the energy of the swapped board minus the energy of this board
+     */
+    public int swapDelta(int x1, int y1, int x2, int y2) {
+        return swapDelta(layout.cell(x1, y1), layout.cell(x2, y2));
     }
 
-    private int countSquareRepetitions(int target, int rowIndex, int columnIndex) {
-        int squareRepetitions = 0;
+    private int swapDelta(int cell1, int cell2) {
+        int first = board[cell1];
+        int second = board[cell2];
 
-        /*
-         * Calculate the index of the square in the board.
-         * For example, in a 3x3 Sudoku, the position (3, 5) is in the Square (1, 1). Since that's indexed, that Square
-         * is in the middle of the board.
-         */
-        int squareRowIndex = rowIndex / squareSize;
-        int squareColumnIndex = columnIndex / squareSize;
+        if (first == second) return 0;
 
         /*
-         * Calculate the starting index of the square relative to the board.
-         * For example, in a 3x3 Sudoku, the position (3, 5) is in the Square (1, 1). The starting position of that
-         * Square corresponds to the position (3, 3) and ends at (5, 5).
+         * A unit holding both positions keeps the same values after the swap, so only the units that hold exactly one
+         * of them change.
          */
-        int boardRowIndex = squareRowIndex * squareSize;
-        int boardColumnIndex = squareColumnIndex * squareSize;
-
-        for (int x = boardRowIndex; x < boardRowIndex + squareSize; x++) {
-            for (int y = boardColumnIndex; y < boardColumnIndex + squareSize; y++) {
-                if (x != rowIndex || y != columnIndex) {
-                    squareRepetitions += board[x][y] == target ? 1 : 0;
-                }
-            }
+        int delta = 0;
+        if (layout.rowUnitOf[cell1] != layout.rowUnitOf[cell2]) {
+            delta += unitChangeDelta(layout.rowUnitOf[cell1], first, second);
+            delta += unitChangeDelta(layout.rowUnitOf[cell2], second, first);
+        }
+        if (layout.columnUnitOf[cell1] != layout.columnUnitOf[cell2]) {
+            delta += unitChangeDelta(layout.columnUnitOf[cell1], first, second);
+            delta += unitChangeDelta(layout.columnUnitOf[cell2], second, first);
+        }
+        if (layout.squareUnitOf[cell1] != layout.squareUnitOf[cell2]) {
+            delta += unitChangeDelta(layout.squareUnitOf[cell1], first, second);
+            delta += unitChangeDelta(layout.squareUnitOf[cell2], second, first);
         }
 
-        return squareRepetitions;
+        return delta;
+    }
+
+    /**
+     * Calculates how {@link #repetitions()} would change if the value at position (x, y) were incremented as
+     * {@link NeighborStrategy#RANDOM_ADD_ONE} does. Only the value counts of the row, column and square of the position
+     * are read.
+     *
+     * @return the energy of the modified board minus the energy of this board
+     */
+    public int addOneDelta(int x, int y) {
+        return addOneDelta(layout.cell(x, y));
+    }
+
+    private int addOneDelta(int cell) {
+        int oldValue = board[cell];
+        int newValue = addOne(oldValue);
+
+        if (oldValue == newValue) return 0;
+
+        return unitChangeDelta(layout.rowUnitOf[cell], oldValue, newValue)
+                + unitChangeDelta(layout.columnUnitOf[cell], oldValue, newValue)
+                + unitChangeDelta(layout.squareUnitOf[cell], oldValue, newValue);
+    }
+
+    /**
+     * @return the change in repetitions caused by replacing one occurrence of {@code oldValue} with {@code newValue}
+     * in {@code unit}
+     */
+    private int unitChangeDelta(int unit, int oldValue, int newValue) {
+        return 2 * (unitValueCounts[countIndex(unit, newValue)] - (unitValueCounts[countIndex(unit, oldValue)] - 1));
+    }
+
+    private int addOne(int value) {
+        int newValue = (value + 1) % boardSize;
+        return newValue == 0 ? 1 : newValue;
     }
 
     /**
      * @param strategy to generate new neighbor
+     * @param random   source of the positions to change
+     *
+     * @return a new instance of {@link Sudoku} generated by applying {@code strategy}. Its repetitions are derived
+     * from this instance's through {@link #swapDelta} or {@link #addOneDelta} instead of rescanning the board.
+     */
+    public Sudoku neighbor(@NotNull NeighborStrategy strategy, @NotNull SplittableRandom random) {
+        Move move = new Move();
+        propose(strategy, move, random);
+
+        Sudoku neighbor = snapshot();
+        neighbor.apply(move);
+
+        return neighbor;
+    }
+
+    /**
+     * Picks a random move according to {@code strategy} and stores it, along with its energy delta, in {@code move}.
+     * The board is not modified, so the move can be discarded or handed to {@link #apply(Move)}.
      *
-     * @return a new instance of {@link Sudoku} generated by applying {@code strategy}
+     * @param strategy to generate the move
+     * @param move     holder to overwrite, which lets callers reuse a single instance across iterations
+     * @param random   source of the positions to change, which must not be shared between threads
      */
-    public Sudoku neighbor(@NotNull NeighborStrategy strategy) {
+    public void propose(@NotNull NeighborStrategy strategy, @NotNull Move move, @NotNull SplittableRandom random) {
         switch (Objects.requireNonNull(strategy, "Neighbor strategy must not be null")) {
             case RANDOM_SWAP_BOARD:
+                proposeBoardSwap(move, random);
+                break;
             case RANDOM_SWAP_SQUARE:
-                return swapToNeighbor(strategy);
+                proposeSquareSwap(move, random);
+                break;
             case RANDOM_ADD_ONE:
-                return addOneToNeighbor();
+                proposeAddOne(move, random);
+                break;
+            case CONFLICT_SWAP_SQUARE:
+                proposeConflictSwap(move, random);
+                break;
             default:
                 throw new IllegalArgumentException("Invalid NeighborStrategy -> " + strategy);
         }
     }
 
-    private Sudoku addOneToNeighbor() {
-        Random random = new Random();
-
-        int x, y;
+    /**
+     * Samples {@code samples} moves as {@link #propose(NeighborStrategy, Move, SplittableRandom)} does and keeps the
+     * one with the lowest delta, the earliest one on ties.
+     *
+     * @param samples an integer >= {@literal 1}
+     */
+    public void propose(@NotNull NeighborStrategy strategy,
+                        @NotNull Move move,
+                        @NotNull SplittableRandom random,
+                        int samples) {
+        if (samples < 1) throw new IllegalArgumentException("samples cannot be < 1");
+
+        propose(strategy, move, random);
+        for (int i = 1; i < samples; i++) {
+            // Strategies may fall back to another one, so the strategy of the move is kept along with it
+            NeighborStrategy bestStrategy = move.strategy;
+            int bestCell1 = move.cell1, bestCell2 = move.cell2, bestDelta = move.delta;
+
+            propose(strategy, move, random);
+            if (move.delta >= bestDelta) move.set(bestStrategy, bestCell1, bestCell2, bestDelta);
+        }
+    }
 
-        do {
-            x = random.nextInt(boardSize);
-            y = random.nextInt(boardSize);
-        } while (boardFixedPositions[x][y]);
+    /*
+     * Strategies draw cells from the non fixed ones instead of rejecting fixed ones, so they never spin on boards that
+     * are mostly fixed. Boards without any cell a strategy can change get a move that swaps a cell with itself, which
+     * changes nothing.
+     */
 
-        // Copy board data
-        int[][] neighborBoard = new int[boardSize][boardSize];
-        boolean[][] fixedBoardPositionsCopy = new boolean[boardSize][boardSize];
+    private void proposeAddOne(Move move, SplittableRandom random) {
+        int[] cells = freeCells().cells;
 
-        for (int i = 0; i < boardSize; i++) {
-            System.arraycopy(board[i], 0, neighborBoard[i], 0, boardSize);
+        if (cells.length == 0) {
+            // Adding one to a cell always changes it, so fall back to a swap
+            proposeNothing(NeighborStrategy.RANDOM_SWAP_BOARD, move);
+            return;
         }
 
-        for (int i = 0; i < boardSize; i++) {
-            System.arraycopy(boardFixedPositions[i], 0, fixedBoardPositionsCopy[i], 0, boardSize);
-        }
+        int cell = cells[random.nextInt(cells.length)];
+        move.set(NeighborStrategy.RANDOM_ADD_ONE, cell, cell, addOneDelta(cell));
+    }
+
+    private void proposeBoardSwap(Move move, SplittableRandom random) {
+        int[] cells = freeCells().cells;
 
-        // Add one to value
-        int newValue = (neighborBoard[x][y] + 1) % boardSize;
-        neighborBoard[x][y] = newValue == 0 ? 1 : newValue;
+        if (cells.length < 2) {
+            proposeNothing(NeighborStrategy.RANDOM_SWAP_BOARD, move);
+            return;
+        }
 
-        return new Sudoku(neighborBoard, fixedBoardPositionsCopy);
+        int cell1 = cells[random.nextInt(cells.length)];
+        int cell2 = otherThan(cell1, cells, random);
+        move.set(NeighborStrategy.RANDOM_SWAP_BOARD, cell1, cell2, swapDelta(cell1, cell2));
     }
 
-    private Sudoku swapToNeighbor(NeighborStrategy swapStrategy) {
-        Random random = new Random();
+    private void proposeSquareSwap(Move move, SplittableRandom random) {
+        if (freeCells().swappableCells.length == 0) {
+            proposeNothing(NeighborStrategy.RANDOM_SWAP_SQUARE, move);
+            return;
+        }
 
-        int x1, y1, x2, y2;
+        int cell1, cell2;
         boolean validSwap;
 
+        // Squares with fewer than two non fixed cells are rejected, keeping every valid swap equally likely
         do {
-            if (swapStrategy == NeighborStrategy.RANDOM_SWAP_BOARD) {
-                x1 = random.nextInt(boardSize);
-                y1 = random.nextInt(boardSize);
-                x2 = random.nextInt(boardSize);
-                y2 = random.nextInt(boardSize);
-            }  else if (swapStrategy == NeighborStrategy.RANDOM_SWAP_SQUARE) {
-                int squareInitialRow = random.nextInt(squareSize) * squareSize;
-                int squareInitialColumn = random.nextInt(squareSize) * squareSize;
-
-                x1 = random.nextInt(squareSize) + squareInitialRow;
-                y1 = random.nextInt(squareSize) + squareInitialColumn;
-                x2 = random.nextInt(squareSize) + squareInitialRow;
-                y2 = random.nextInt(squareSize) + squareInitialColumn;
-            } else {
-                throw new IllegalArgumentException("Neighbor strategy must be a swap one");
-            }
+            int[] squareCells = layout.unitCells[layout.squareUnit(random.nextInt(squareSize), random.nextInt(squareSize))];
 
-            validSwap = (x1 != x2 || y1 != y2) && !boardFixedPositions[x1][y1] && !boardFixedPositions[x2][y2];
+            cell1 = squareCells[random.nextInt(boardSize)];
+            cell2 = squareCells[random.nextInt(boardSize)];
+
+            validSwap = cell1 != cell2 && !boardFixedPositions.get(cell1) && !boardFixedPositions.get(cell2);
+            if (!validSwap) rejectedProposals++;
         } while (!validSwap);
 
-        // Copy board data
-        int[][] neighboardBoard = new int[boardSize][boardSize];
-        boolean[][] fixedBoardPositionsCopy = new boolean[boardSize][boardSize];
+        move.set(NeighborStrategy.RANDOM_SWAP_SQUARE, cell1, cell2, swapDelta(cell1, cell2));
+    }
 
-        for (int i = 0; i < boardSize; i++) {
-            System.arraycopy(board[i], 0, neighboardBoard[i], 0, boardSize);
+    /**
+     * Swaps a conflicted cell with another non fixed cell of its square. Once no swappable cell conflicts, any
+     * swappable cell is taken instead.
+     */
+    private void proposeConflictSwap(Move move, SplittableRandom random) {
+        trackConflictedCells();
+        int[] swappableCells = freeCells.swappableCells;
+
+        int cell1;
+        if (conflictedCells.size() > 0) {
+            cell1 = conflictedCells.get(random.nextInt(conflictedCells.size()));
+        } else if (swappableCells.length > 0) {
+            cell1 = swappableCells[random.nextInt(swappableCells.length)];
+        } else {
+            proposeNothing(NeighborStrategy.CONFLICT_SWAP_SQUARE, move);
+            return;
         }
 
-        for (int i = 0; i < boardSize; i++) {
-            System.arraycopy(boardFixedPositions[i], 0, fixedBoardPositionsCopy[i], 0, boardSize);
-        }
+        int cell2 = otherThan(cell1, freeCells.squareCells[layout.squareUnitOf[cell1] - 2 * boardSize], random);
+        move.set(NeighborStrategy.CONFLICT_SWAP_SQUARE, cell1, cell2, swapDelta(cell1, cell2));
+    }
 
-        // Swap values
-        int buffer = neighboardBoard[x1][y1];
-        neighboardBoard[x1][y1] = neighboardBoard[x2][y2];
-        neighboardBoard[x2][y2] = buffer;
+    /**
+     * @param cells holding {@code cell} exactly once, along with at least another one
+     *
+     * @return a cell of {@code cells} other than {@code cell}, all of them equally likely
+     */
+    private static int otherThan(int cell, int[] cells, SplittableRandom random) {
+        int other = cells[random.nextInt(cells.length - 1)];
+        return other == cell ? cells[cells.length - 1] : other;
+    }
+
+    private static void proposeNothing(NeighborStrategy swapStrategy, Move move) {
+        move.set(swapStrategy, 0, 0, 0);
+    }
+
+    /**
+     * Applies a move previously filled by {@link #propose(NeighborStrategy, Move, SplittableRandom)} on this same
+     * board, mutating it in place. Value counts and repetitions are updated for the touched units only.
+     */
+    public void apply(@NotNull Move move) {
+        if (move.strategy == NeighborStrategy.RANDOM_ADD_ONE) {
+            setValue(move.cell1, addOne(board[move.cell1]));
+        } else {
+            int buffer = board[move.cell1];
+            setValue(move.cell1, board[move.cell2]);
+            setValue(move.cell2, buffer);
+        }
+    }
 
-        return new Sudoku(neighboardBoard, fixedBoardPositionsCopy);
+    /**
+     * @return a copy of this instance whose board and value counts are detached from this one. Fixed positions never
+     * change after creation, so they are shared rather than copied.
+     */
+    public Sudoku snapshot() {
+        return new Sudoku(this);
     }
 
     // TODO: Write documentation
@@ -293,7 +668,7 @@ public final class Sudoku {
 
         for (int lineIndex = 0; lineIndex < boardSize; lineIndex++) {
             for (int i = 0; i < boardSize; i++) {
-                dumpBuilder.append(board[lineIndex][i]);
+                dumpBuilder.append(board[layout.cell(lineIndex, i)]);
                 if (i < boardSize - 1) dumpBuilder.append(' ');
             }
 
@@ -306,33 +681,98 @@ public final class Sudoku {
     /**
      * Creates a Sudoku in which takes initialization parameters from {@code config}.
      *
+     * Fixed positions are taken from a board whose squares hold every value but whose rows and columns usually do
+     * not, so the instance may have no solution. {@link PuzzleGenerator} produces instances with a unique one.
+     *
      * @param config initial Sudoku configuration
+     * @param random source of the generated values and fixed positions
      */
-    public static Sudoku of(@NotNull Config config) {
-        return new Sudoku(config.squareSize, config.fixedQuantity);
+    public static Sudoku of(@NotNull Config config, @NotNull SplittableRandom random) {
+        return new Sudoku(config.squareSize, config.fixedQuantity, random);
     }
 
-    // TODO: Comment
+    /**
+     * Reads an instance whose non zero values are its fixed positions.
+     *
+     * @throws IllegalArgumentException if the instance is not a square board of square size, or holds values out of it
+     */
     public static Sudoku of(@NotNull FileConfig fileConfig) {
         List<int[]> sudokuLines = fileConfig.readSudokuLines();
 
         int boardSize = sudokuLines.size();
-        int[][] board = new int[boardSize][boardSize];
-        boolean[][] boardFixedPositions = new boolean[boardSize][boardSize];
+        int squareSize = (int) Math.sqrt(boardSize);
+        if (boardSize == 0 || squareSize * squareSize != boardSize) {
+            throw new IllegalArgumentException("Instance " + fileConfig.filePath + " has " + boardSize +
+                    " lines, which is not the square of a square size");
+        }
+        for (int[] line : sudokuLines) {
+            if (line.length != boardSize) {
+                throw new IllegalArgumentException("Instance " + fileConfig.filePath + " has a line of " +
+                        line.length + " values instead of " + boardSize);
+            }
+            for (int value : line) {
+                if (value > boardSize) {
+                    throw new IllegalArgumentException("Instance " + fileConfig.filePath + " holds value " + value +
+                            ", greater than " + boardSize);
+                }
+            }
+        }
+
+        BoardLayout layout = BoardLayout.of(squareSize);
+        byte[] board = new byte[layout.cellCount];
+        BitSet boardFixedPositions = new BitSet(layout.cellCount);
 
         int rowIndex = 0;
         for (int[] line : sudokuLines) {
             // Copy raw line into board
-            System.arraycopy(line, 0, board[rowIndex], 0, boardSize);
-
             for (int columnIndex = 0; columnIndex < boardSize; columnIndex++) {
-                boardFixedPositions[rowIndex][columnIndex] = line[columnIndex] > 0;
+                int cell = layout.cell(rowIndex, columnIndex);
+
+                board[cell] = (byte) line[columnIndex];
+                if (line[columnIndex] > 0) boardFixedPositions.set(cell);
             }
 
             rowIndex++;
         }
 
-        return new Sudoku(board, boardFixedPositions);
+        return new Sudoku(layout, board, boardFixedPositions);
+    }
+
+    /**
+     * @param givens value of every cell, {@code 0} for empty ones. It is copied, so callers may reuse it.
+     */
+    static Sudoku ofGivens(@NotNull BoardLayout layout, @NotNull byte[] givens) {
+        BitSet boardFixedPositions = new BitSet(layout.cellCount);
+        for (int cell = 0; cell < layout.cellCount; cell++) {
+            if (givens[cell] != 0) boardFixedPositions.set(cell);
+        }
+
+        return new Sudoku(layout, givens.clone(), boardFixedPositions);
+    }
+
+    /**
+     * A reusable description of a single neighbor move: the strategy that produced it, the positions it touches and
+     * the change in repetitions it causes. Instances are filled by
+     * {@link #propose(NeighborStrategy, Move, SplittableRandom)}.
+     */
+    public final static class Move {
+        private NeighborStrategy strategy;
+        private int cell1, cell2;
+        private int delta;
+
+        private void set(NeighborStrategy strategy, int cell1, int cell2, int delta) {
+            this.strategy = strategy;
+            this.cell1 = cell1;
+            this.cell2 = cell2;
+            this.delta = delta;
+        }
+
+        /**
+         * @return the energy of the board after applying this move minus the energy before applying it
+         */
+        public int delta() {
+            return delta;
+        }
     }
 
     public final static class Config {
@@ -366,9 +806,58 @@ public final class Sudoku {
 
         @NotNull
         abstract List<int[]> readSudokuLines();
+
+        /**
+         * @return the name of the file the instance is read from, without its directories
+         */
+        @NotNull
+        public String getFileName() {
+            return filePath.getFileName().toString();
+        }
+
+        /**
+         * Parses lines of non negative integers separated by {@code separator} straight from their ASCII bytes.
+         * Empty lines are skipped and a carriage return before a line break is ignored.
+         */
+        @NotNull
+        static List<int[]> parseSudokuLines(@NotNull byte[] content, char separator, @NotNull Path filePath) {
+            List<int[]> sudokuLines = new ArrayList<>();
+            int[] line = new int[16];
+            int lineLength = 0;
+            int value = -1;
+
+            // A line break past the end flushes the last line
+            for (int i = 0; i <= content.length; i++) {
+                int character = i < content.length ? content[i] : '\n';
+
+                if (character >= '0' && character <= '9') {
+                    value = (value < 0 ? 0 : 10 * value) + character - '0';
+                    continue;
+                }
+                if (character != separator && character != '\n' && character != '\r') {
+                    throw new RuntimeException("Unexpected character '" + (char) character + "' in file " + filePath);
+                }
+
+                if (value >= 0) {
+                    if (lineLength == line.length) line = Arrays.copyOf(line, 2 * line.length);
+                    line[lineLength++] = value;
+                    value = -1;
+                }
+
+                if (character == '\n' && lineLength > 0) {
+                    sudokuLines.add(Arrays.copyOf(line, lineLength));
+                    lineLength = 0;
+                }
+            }
+
+            return sudokuLines;
+        }
     }
 
-    // TODO: Comment
+    /**
+     * Instances written as one digit per cell, which only holds boards of up to 9 values. Bigger boards, whose values
+     * take several digits, are read by {@link ValueSeparatorFileConfig}.
+     */
     public final static class SingleDigitValueFileConfig extends FileConfig {
 
         public SingleDigitValueFileConfig(@NotNull Path filePath) {
@@ -377,58 +866,122 @@ public final class Sudoku {
 
         @NotNull
         public List<int[]> readSudokuLines() {
-            Stream<int[]> sudokuLinesStream;
+            byte[] content;
 
             try {
-                sudokuLinesStream = Files.readAllLines(filePath).stream()
-                        .filter(s -> !s.trim().isEmpty())
-                        .map(s -> {
-                            int[] line = new int[s.length()];
-                            for (int i = 0; i < s.length(); i++) line[i] = Character.getNumericValue(s.charAt(i));
-                            return line;
-                        });
+                content = Files.readAllBytes(filePath);
             } catch (IOException e) {
                 throw new RuntimeException("Failed to read file " + filePath);
             }
 
-            return sudokuLinesStream.collect(Collectors.toList());
+            List<int[]> sudokuLines = new ArrayList<>();
+            int lineStart = 0;
+
+            for (int i = 0; i <= content.length; i++) {
+                if (i < content.length && content[i] != '\n' && content[i] != '\r') continue;
+
+                if (i > lineStart) {
+                    int[] line = new int[i - lineStart];
+                    for (int j = 0; j < line.length; j++) {
+                        byte character = content[lineStart + j];
+                        if (character < '0' || character > '9') {
+                            throw new RuntimeException("Unexpected character " + (char) character + " in file " + filePath);
+                        }
+
+                        line[j] = character - '0';
+                    }
+                    sudokuLines.add(line);
+                }
+
+                lineStart = i + 1;
+            }
+
+            return sudokuLines;
         }
     }
 
     // TODO: Comment
     public final static class ValueSeparatorFileConfig extends FileConfig {
-        private final String stringSeparator;
+        private final char separator;
 
         public ValueSeparatorFileConfig(@NotNull Path filePath, char separator) {
             super(filePath);
-            stringSeparator = String.valueOf(separator);
+            this.separator = separator;
         }
 
         @NotNull
         public List<int[]> readSudokuLines() {
-            Stream<int[]> sudokuLinesStream;
+            byte[] content;
 
             try {
-                sudokuLinesStream = Files.readAllLines(filePath).stream()
-                        .filter(s -> !s.trim().isEmpty())
-                        .map(s -> {
-                            String[] stringValues = s.split(stringSeparator);
-                            int[] line = new int[s.length()];
-                            for (int i = 0; i < stringValues.length; i++) {
-                                line[i] = Integer.valueOf(stringValues[i]);
-                            }
-                            return line;
-                        });
+                content = Files.readAllBytes(filePath);
             } catch (IOException e) {
                 throw new RuntimeException("Failed to read file " + filePath);
             }
 
-            return sudokuLinesStream.collect(Collectors.toList());
+            return parseSudokuLines(content, separator, filePath);
+        }
+    }
+
+    /**
+     * Instance held by an entry of a zip archive, in the format read by {@link ValueSeparatorFileConfig}. The entry's
+     * content is read beforehand, usually along with the rest of the archive by {@link ZipDataset}, so no file is
+     * opened when the instance is parsed.
+     */
+    public final static class ZipEntryFileConfig extends FileConfig {
+        private final byte[] content;
+        private final char separator;
+
+        /**
+         * @param zipPath   of the archive holding the entry
+         * @param entryName of the entry, which must be a file name in the archive's root
+         * @param content   of the entry
+         */
+        public ZipEntryFileConfig(@NotNull Path zipPath,
+                                  @NotNull String entryName,
+                                  @NotNull byte[] content,
+                                  char separator) {
+            super(zipPath.resolve(entryName));
+            this.content = content;
+            this.separator = separator;
+        }
+
+        @NotNull
+        public List<int[]> readSudokuLines() {
+            return parseSudokuLines(content, separator, filePath);
+        }
+    }
+
+    /**
+     * Instance received rather than read from a file, such as the body of a request, in the format read by
+     * {@link ValueSeparatorFileConfig}.
+     */
+    public final static class ContentFileConfig extends FileConfig {
+        private final byte[] content;
+        private final char separator;
+
+        /**
+         * @param name identifying the instance in error messages
+         */
+        public ContentFileConfig(@NotNull String name, @NotNull byte[] content, char separator) {
+            super(Paths.get(name));
+            this.content = content;
+            this.separator = separator;
+        }
+
+        @NotNull
+        public List<int[]> readSudokuLines() {
+            return parseSudokuLines(content, separator, filePath);
         }
     }
 
     public enum NeighborStrategy {
-        RANDOM_SWAP_BOARD, RANDOM_SWAP_SQUARE, RANDOM_ADD_ONE;
+        RANDOM_SWAP_BOARD, RANDOM_SWAP_SQUARE, RANDOM_ADD_ONE,
+        /**
+         * Swaps within a square, like {@link #RANDOM_SWAP_SQUARE}, but always moves a cell whose value is repeated
+         * in its row, column or square while there is any.
+         */
+        CONFLICT_SWAP_SQUARE;
 
         @NotNull
         public String shorthand() {
@@ -439,6 +992,8 @@ public final class Sudoku {
                     return "ss";
                 case RANDOM_ADD_ONE:
                     return "ao";
+                case CONFLICT_SWAP_SQUARE:
+                    return "cs";
             }
 
             throw new IllegalStateException("Invalid NeighborStrategy instance");
@@ -464,13 +1019,14 @@ public final class Sudoku {
         String instancePathFormat = "s_%d_%d_%d.txt";
         float[] fixedQuantityPercentages = new float[]{0.2f};
         int[] squareSizes = new int[]{3, 4, 5};
+        SplittableRandom random = new SplittableRandom(Long.getLong("sudoku.seed", System.nanoTime()));
 
         for (int squareSize : squareSizes) {
             for (float fixedQuantityPercentage : fixedQuantityPercentages) {
                 int fixedQuantity = (int) Math.ceil(Math.pow(squareSize, 4) * fixedQuantityPercentage);
 
                 for (int sudokuNumber = 1; sudokuNumber <= 150; sudokuNumber++) {
-                    Sudoku instance = Sudoku.of(new Config(squareSize, fixedQuantity));
+                    Sudoku instance = Sudoku.of(new Config(squareSize, fixedQuantity), random);
                     Path instancePath = datasetsPath.resolve(String.format(instancePathFormat, squareSize, fixedQuantity, sudokuNumber));
 
                     try (BufferedWriter instanceWriter = Files.newBufferedWriter(Files.createFile(instancePath))) {
@@ -0,0 +1,19 @@
+package sudoku;
+
+import com.sun.istack.internal.NotNull;
+
+/**
+ * Engine able to fill the non fixed positions of a {@link Sudoku}.
+ */
+public interface SudokuSolver {
+
+    /**
+     * @param instance to solve, which is left untouched
+     *
+     * @return a new instance with the same fixed positions and the best board the solver found. Its
+     * {@link Sudoku#repetitions()} is {@code 0} if and only if it is a solution.
+     */
+    @NotNull
+    Sudoku solve(@NotNull Sudoku instance);
+
+}
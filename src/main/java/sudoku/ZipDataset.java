@@ -0,0 +1,66 @@
+package sudoku;
+
+import com.sun.istack.internal.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Instances shipped as a zip archive of {@code s_*.txt} files, read in a single pass over the archive without
+ * extracting it.
+ */
+public final class ZipDataset {
+
+    /**
+     * Folder holding the resource forks macOS adds to archives it creates, which are not instances.
+     */
+    private static final String MAC_OS_METADATA_PREFIX = "__MACOSX/";
+
+    private ZipDataset() {
+    }
+
+    /**
+     * Reads every instance of the archive at {@code zipPath} whose file name satisfies {@code fileNameFilter}.
+     * Directories, macOS metadata and entries nested in folders are skipped.
+     *
+     * @return the instances in file name order, ready for {@link Sudoku#of(Sudoku.FileConfig)}
+     */
+    @NotNull
+    public static List<Sudoku.ZipEntryFileConfig> read(@NotNull Path zipPath, @NotNull Predicate<String> fileNameFilter) {
+        List<Sudoku.ZipEntryFileConfig> instances = new ArrayList<>();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        try (ZipInputStream input = new ZipInputStream(new BufferedInputStream(Files.newInputStream(zipPath)))) {
+            for (ZipEntry entry = input.getNextEntry(); entry != null; entry = input.getNextEntry()) {
+                String name = entry.getName();
+                if (entry.isDirectory() || name.startsWith(MAC_OS_METADATA_PREFIX) || name.indexOf('/') >= 0) continue;
+                if (!fileNameFilter.test(name)) continue;
+
+                content.reset();
+                copy(input, content, buffer);
+                instances.add(new Sudoku.ZipEntryFileConfig(zipPath, name, content.toByteArray(), ' '));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read dataset " + zipPath, e);
+        }
+
+        instances.sort(Comparator.comparing(Sudoku.FileConfig::getFileName));
+        return instances;
+    }
+
+    private static void copy(InputStream input, ByteArrayOutputStream output, byte[] buffer) throws IOException {
+        for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) output.write(buffer, 0, read);
+    }
+
+}